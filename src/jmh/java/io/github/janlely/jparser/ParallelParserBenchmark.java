@@ -0,0 +1,79 @@
+package io.github.janlely.jparser;
+
+import io.github.janlely.jparser.impl.json.JsonParser;
+import io.github.janlely.jparser.util.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of parsing many small JSON documents, by number of threads.
+ * Run with: mvn -Pjmh test-compile exec:exec
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelParserBenchmark {
+
+    private static final int DOCUMENTS = 10000;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private final Parser parser = JsonParser.parser();
+    private byte[][] documents;
+    private ParallelParser parallel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        this.documents = new byte[DOCUMENTS][];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            this.documents[i] = ("{\"id\":" + i + ",\"name\":\"record-" + i + "\",\"tags\":[\"a\",\"b\"],"
+                    + "\"score\":" + (i * 0.5) + ",\"active\":" + (i % 2 == 0) + "}").getBytes();
+        }
+        this.parallel = ParallelParser.builder().parser(this.parser).parallelism(this.threads).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this.parallel.close();
+    }
+
+    private List<IBuffer> buffers() {
+        List<IBuffer> buffers = new ArrayList<>(DOCUMENTS);
+        for (byte[] document : this.documents) {
+            buffers.add(Buffer.builder().data(document).build());
+        }
+        return buffers;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public List<Result> parseAll() {
+        return this.parallel.parseAll(buffers());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DOCUMENTS)
+    public long parseStream() {
+        return this.parallel.parseStream(buffers().stream()).filter(Result::isSuccess).count();
+    }
+}
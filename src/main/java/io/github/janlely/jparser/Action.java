@@ -0,0 +1,53 @@
+package io.github.janlely.jparser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A semantic action recorded in deferred mode, in place of the value it produces.
+ * It is run only when the result that holds it is kept.
+ */
+final class Action {
+
+    private final Function<List, ?> mapper;
+    private final List input;
+    private boolean done;
+    private Object value;
+
+    Action(Function<List, ?> mapper, List input) {
+        this.mapper = mapper;
+        this.input = input;
+    }
+
+    /**
+     * Run the action once, the nested actions of its input are run first.
+     * @return the value
+     */
+    Object run() {
+        if (!this.done) {
+            this.value = this.mapper.apply(force(this.input));
+            this.done = true;
+        }
+        return this.value;
+    }
+
+    /**
+     * @param values a result list
+     * @return the list with every action replaced by its value, the list itself if it holds no action
+     */
+    static List force(List values) {
+        int i = 0;
+        while (i < values.size() && !(values.get(i) instanceof Action)) {
+            i++;
+        }
+        if (i == values.size()) {
+            return values;
+        }
+        List forced = new ArrayList(values.size());
+        for (Object v : values) {
+            forced.add(v instanceof Action ? ((Action) v).run() : v);
+        }
+        return forced;
+    }
+}
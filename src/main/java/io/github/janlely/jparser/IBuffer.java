@@ -1,5 +1,7 @@
 package io.github.janlely.jparser;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Optional;
 
 /**
@@ -12,7 +14,7 @@ public interface IBuffer {
     void backward(int n);
 
     /**
-     * @return remaining bytes
+     * @return remaining bytes, capped at Integer.MAX_VALUE
      */
     int remaining();
 
@@ -35,7 +37,7 @@ public interface IBuffer {
     /**
      * @return current position of the cursor
      */
-    int getPos();
+    long getPos();
 
     /**
      * @param idx position to split at
@@ -47,4 +49,64 @@ public interface IBuffer {
      * @return remaining bytes
      */
     byte[] remainContent();
+
+    /**
+     * @param offset offset from the cursor
+     * @return the byte at cursor + offset as an unsigned value, or -1 if it is out of range
+     */
+    default int peek(int offset) {
+        byte[] bytes = headN(offset + 1);
+        return bytes.length > offset ? bytes[offset] & 0xff : -1;
+    }
+
+    /**
+     * @param from offset from the cursor
+     * @param len byte counts
+     * @return a read-only view of at most len bytes, valid until the buffer moves on
+     */
+    default ByteBuffer slice(int from, int len) {
+        byte[] bytes = headN(from + len);
+        int start = Math.min(from, bytes.length);
+        return ByteBuffer.wrap(bytes, start, bytes.length - start).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * @param bytes bytes to compare
+     * @return if the leading bytes equal the given bytes
+     */
+    default boolean regionEquals(byte[] bytes) {
+        return Arrays.equals(bytes, headN(bytes.length));
+    }
+
+    /**
+     * The context holds the state of the current parse, such as memoized results.
+     * It is called by every step of a parse, implementations should keep one context per instance,
+     * created lazily with {@code new ParseContext()}. The default is a slower fallback: the context
+     * is looked up by identity among the last few buffers parsed by the current thread, so a buffer
+     * must be parsed by one thread and the context of a buffer not used for a while is dropped.
+     * @return the parse context of this buffer
+     */
+    default ParseContext getContext() {
+        return ParseContext.of(this);
+    }
+
+    /**
+     * Pin the current position: the bytes from here on are retained until the matching
+     * {@link #unmark()} or {@link #commit()}, so that the parser can backtrack to it.
+     */
+    default void mark() {
+    }
+
+    /**
+     * Drop the latest mark.
+     */
+    default void unmark() {
+    }
+
+    /**
+     * Drop the latest mark. When no mark is left, the bytes before the cursor will not
+     * be revisited and may be released.
+     */
+    default void commit() {
+    }
 }
@@ -0,0 +1,197 @@
+package io.github.janlely.jparser;
+
+import lombok.Builder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Parse many independent inputs with one Parser in parallel, the results keep the order of the inputs.
+ * The inputs are parsed in chunks, each chunk is a task of a work-stealing pool, or of a
+ * virtual thread if asked for and the JDK has them. A Parser can be shared by the tasks, see {@link Parser}.
+ * <pre>
+ * try (ParallelParser parallel = ParallelParser.builder().parser(JsonParser.parser()).build()) {
+ *     List&lt;Result&gt; results = parallel.parseAll(buffers);
+ * }
+ * </pre>
+ */
+public class ParallelParser implements AutoCloseable {
+
+    /**
+     * default number of inputs of a task
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final Parser parser;
+    private final int parallelism;
+    private final int chunkSize;
+    private final ExecutorService executor;
+    /**
+     * if the executor is owned and shut down by {@link #close()}
+     */
+    private final boolean owned;
+
+    /**
+     * @param parser the Parser
+     * @param parallelism size of the pool, and of the chunks parsed ahead by {@link #parseStream(Stream)};
+     *                    0 for the number of processors
+     * @param chunkSize number of inputs of a task, 0 for {@link #DEFAULT_CHUNK_SIZE}
+     * @param virtualThreads if the tasks run on virtual threads, when the JDK has them
+     */
+    @Builder
+    private ParallelParser(Parser parser, int parallelism, int chunkSize, boolean virtualThreads) {
+        this(parser, parallelism, chunkSize, virtualThreads ? virtualThreadExecutor() : null, true);
+    }
+
+    private ParallelParser(Parser parser, int parallelism, int chunkSize, ExecutorService executor, boolean owned) {
+        if (parser == null) {
+            throw new IllegalArgumentException("parser is required");
+        }
+        this.parser = parser;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+        this.executor = executor != null ? executor : new ForkJoinPool(this.parallelism);
+        this.owned = owned;
+    }
+
+    /**
+     * Parse the inputs on the common pool.
+     * @param parser the Parser
+     * @param buffers the inputs
+     * @return the results, in the order of the inputs
+     */
+    public static List<Result> parseAll(Parser parser, List<? extends IBuffer> buffers) {
+        ParallelParser parallel = new ParallelParser(parser, ForkJoinPool.getCommonPoolParallelism(),
+                DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool(), false);
+        return parallel.parseAll(buffers);
+    }
+
+    /**
+     * @return an executor that starts a virtual thread for each task, null if the JDK has no virtual threads
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param buffers the inputs
+     * @return the results, in the order of the inputs
+     */
+    public List<Result> parseAll(List<? extends IBuffer> buffers) {
+        Result[] results = new Result[buffers.size()];
+        List<Future<?>> tasks = new ArrayList<>(results.length / this.chunkSize + 1);
+        for (int from = 0; from < results.length; from += this.chunkSize) {
+            int start = from;
+            int end = Math.min(from + this.chunkSize, results.length);
+            tasks.add(this.executor.submit(() -> {
+                for (int i = start; i < end; i++) {
+                    results[i] = this.parser.runParser(buffers.get(i));
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            await(task);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Parse the inputs lazily: chunks are read from the inputs and parsed ahead of the
+     * consumer, at most twice the parallelism of them at once. Memory is bounded by the chunks
+     * in flight, whatever the number of inputs.
+     * @param buffers the inputs
+     * @return the results, in the order of the inputs
+     */
+    public Stream<Result> parseStream(Stream<? extends IBuffer> buffers) {
+        Iterator<? extends IBuffer> inputs = buffers.iterator();
+        Iterator<Result> results = new Iterator<>() {
+            private final Deque<Future<Result[]>> chunks = new ArrayDeque<>();
+            private Result[] chunk = new Result[0];
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (this.chunks.size() < 2 * parallelism && inputs.hasNext()) {
+                    IBuffer[] inputChunk = new IBuffer[chunkSize];
+                    int size = 0;
+                    while (size < chunkSize && inputs.hasNext()) {
+                        inputChunk[size++] = inputs.next();
+                    }
+                    int length = size;
+                    this.chunks.add(executor.submit(() -> {
+                        Result[] parsed = new Result[length];
+                        for (int i = 0; i < length; i++) {
+                            parsed[i] = parser.runParser(inputChunk[i]);
+                        }
+                        return parsed;
+                    }));
+                }
+                while (this.index == this.chunk.length) {
+                    if (this.chunks.isEmpty()) {
+                        return false;
+                    }
+                    this.chunk = await(this.chunks.poll());
+                    this.index = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public Result next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return this.chunk[this.index++];
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(results,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(buffers::close);
+    }
+
+    /**
+     * @param future a task
+     * @param <T> the value type
+     * @return the value of the task
+     */
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Shut down the pool of this ParallelParser, the common pool is never shut down.
+     */
+    @Override
+    public void close() {
+        if (this.owned) {
+            this.executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package io.github.janlely.jparser;
+
+import lombok.Builder;
+
+import java.time.Duration;
+
+/**
+ * Limits the work of one parse, to bound the latency of pathological input.
+ * A step is one {@link Parser#runParser(IBuffer)}, a backtrack is one retry of an alternative,
+ * a cut of a {@link io.github.janlely.jparser.comb.BacktraceParser} or a failed stop of repeatTill.
+ * Once a limit is reached every later step fails at once, so the parse unwinds through the
+ * normal failure path, and {@link Parser#runParser(IBuffer, ParseBudget)} returns a Result
+ * that {@link Result#isExhausted()}.
+ * A budget is used by one parse at a time, it is reset when that parse starts.
+ */
+public class ParseBudget {
+
+    /**
+     * the deadline is checked every CLOCK_MASK + 1 steps and backtracks
+     */
+    private static final long CLOCK_MASK = 1023;
+
+    /**
+     * max steps, 0 if unlimited
+     */
+    private final long steps;
+    /**
+     * max backtracks, 0 if unlimited
+     */
+    private final long backtracks;
+    /**
+     * max wall-clock time, null if unlimited
+     */
+    private final Duration timeout;
+
+    private long stepsLeft;
+    private long backtracksLeft;
+    private long deadline;
+    private long ticks;
+    private boolean exhausted;
+
+    /**
+     * @param steps max steps, 0 if unlimited
+     * @param backtracks max backtracks, 0 if unlimited
+     * @param timeout max wall-clock time, null if unlimited
+     */
+    @Builder
+    private ParseBudget(long steps, long backtracks, Duration timeout) {
+        this.steps = steps;
+        this.backtracks = backtracks;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Reset the counters and start the clock.
+     */
+    void start() {
+        this.stepsLeft = this.steps > 0 ? this.steps : Long.MAX_VALUE;
+        this.backtracksLeft = this.backtracks > 0 ? this.backtracks : Long.MAX_VALUE;
+        this.deadline = this.timeout == null ? 0 : System.nanoTime() + this.timeout.toNanos();
+        this.ticks = 0;
+        this.exhausted = false;
+    }
+
+    /**
+     * Count a step.
+     * @return false if the budget is exhausted
+     */
+    boolean step() {
+        if (--this.stepsLeft < 0) {
+            return exhaust();
+        }
+        return tick();
+    }
+
+    /**
+     * Count a backtrack.
+     * @return false if the budget is exhausted
+     */
+    boolean backtrack() {
+        if (--this.backtracksLeft < 0) {
+            return exhaust();
+        }
+        return tick();
+    }
+
+    /**
+     * The clock is read only every 1024 steps and backtracks.
+     * @return false if the deadline has passed
+     */
+    private boolean tick() {
+        if ((++this.ticks & CLOCK_MASK) == 0 && this.deadline != 0 && System.nanoTime() - this.deadline > 0) {
+            return exhaust();
+        }
+        return true;
+    }
+
+    private boolean exhaust() {
+        this.exhausted = true;
+        this.stepsLeft = -1;
+        this.backtracksLeft = -1;
+        return false;
+    }
+
+    /**
+     * @return if a limit was reached
+     */
+    public boolean isExhausted() {
+        return this.exhausted;
+    }
+}
@@ -0,0 +1,357 @@
+package io.github.janlely.jparser;
+
+import io.github.janlely.jparser.util.ErrorUtil;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * State of one parse, carried by the buffer being parsed.
+ * It is used by one thread at a time, as the buffer is.
+ */
+public class ParseContext {
+
+    /**
+     * contexts of the buffers that do not keep their own, see {@link IBuffer#getContext()}
+     */
+    private static final ThreadLocal<Fallback> FALLBACK = ThreadLocal.withInitial(Fallback::new);
+
+    private final Map<Parser, MemoTable> memos = new IdentityHashMap<>();
+    /**
+     * memo tables of recognize mode, their results carry no values
+     */
+    private final Map<Parser, MemoTable> recognizeMemos = new IdentityHashMap<>();
+    /**
+     * memo tables of deferred mode, their results may hold unrun actions
+     */
+    private final Map<Parser, MemoTable> deferredMemos = new IdentityHashMap<>();
+
+    /**
+     * the context this one is derived from, null for the context of the input itself
+     */
+    private ParseContext root;
+
+    /**
+     * if only success and length are needed, no values are built
+     */
+    private boolean recognizing;
+    /**
+     * if semantic actions are recorded and run only on the kept result
+     */
+    private boolean deferring;
+
+    /**
+     * the budget of the running parse, null if unlimited
+     */
+    private ParseBudget budget;
+    /**
+     * state of Parsers for this parse, by key
+     */
+    private Map<Object, Object> locals = new HashMap<>();
+
+    /**
+     * positions before floor will not be revisited
+     */
+    private long floor = Long.MIN_VALUE;
+
+    /**
+     * the furthest failed position
+     */
+    private long furthest = -1;
+    private int furthestHead;
+    /**
+     * what was expected at the furthest failed position
+     */
+    private String[] expected = new String[4];
+    private int expectedCount;
+
+    /**
+     * Context of a buffer that does not keep one itself.
+     * @param buffer the buffer
+     * @return the context of the buffer for the current thread
+     */
+    static ParseContext of(IBuffer buffer) {
+        return FALLBACK.get().get(buffer);
+    }
+
+    /**
+     * The contexts of the last buffers of a thread, by identity, the most recently used first.
+     * A buffer is referenced weakly, the least recently used context is dropped for a new buffer.
+     */
+    private static final class Fallback {
+        private static final int SIZE = 8;
+        private final WeakReference<IBuffer>[] buffers = new WeakReference[SIZE];
+        private final ParseContext[] contexts = new ParseContext[SIZE];
+
+        ParseContext get(IBuffer buffer) {
+            int i = 0;
+            while (i < SIZE - 1 && (this.buffers[i] == null || this.buffers[i].get() != buffer)) {
+                i++;
+            }
+            WeakReference<IBuffer> found = this.buffers[i];
+            ParseContext context = found != null && found.get() == buffer ? this.contexts[i] : null;
+            System.arraycopy(this.buffers, 0, this.buffers, 1, i);
+            System.arraycopy(this.contexts, 0, this.contexts, 1, i);
+            if (context == null) {
+                found = new WeakReference<>(buffer);
+                context = new ParseContext();
+            }
+            this.buffers[0] = found;
+            this.contexts[0] = context;
+            return context;
+        }
+    }
+
+    /**
+     * @param parser the memoized parser
+     * @param size size of the table
+     * @return the memo table of the parser
+     */
+    MemoTable memo(Parser parser, int size) {
+        Map<Parser, MemoTable> tables = isRecognizing() ? this.recognizeMemos
+                : isDeferring() ? this.deferredMemos : this.memos;
+        return tables.computeIfAbsent(parser, __ -> new MemoTable(size));
+    }
+
+    /**
+     * @return if in recognize mode, Parsers may skip building values
+     */
+    public boolean isRecognizing() {
+        return this.root != null ? this.root.recognizing : this.recognizing;
+    }
+
+    /**
+     * @param recognizing if in recognize mode
+     */
+    void setRecognizing(boolean recognizing) {
+        if (this.root != null) {
+            this.root.recognizing = recognizing;
+            return;
+        }
+        this.recognizing = recognizing;
+    }
+
+    /**
+     * @return if in deferred mode, mappers are recorded instead of run
+     */
+    public boolean isDeferring() {
+        return this.root != null ? this.root.deferring : this.deferring;
+    }
+
+    /**
+     * @param deferring if in deferred mode
+     */
+    void setDeferring(boolean deferring) {
+        if (this.root != null) {
+            this.root.deferring = deferring;
+            return;
+        }
+        this.deferring = deferring;
+    }
+
+    /**
+     * @return the budget of the running parse, null if unlimited
+     */
+    public ParseBudget getBudget() {
+        return this.root != null ? this.root.budget : this.budget;
+    }
+
+    /**
+     * @param budget the budget of the running parse, null if unlimited
+     */
+    void setBudget(ParseBudget budget) {
+        if (this.root != null) {
+            this.root.budget = budget;
+            return;
+        }
+        this.budget = budget;
+    }
+
+    /**
+     * Count a backtrack against the budget of the running parse.
+     * @return false if the budget is exhausted, the caller should fail at once
+     */
+    public boolean backtrack() {
+        ParseBudget budget = getBudget();
+        return budget == null || budget.backtrack();
+    }
+
+    /**
+     * A new context for a view of the same input. It has its own memo tables, the mode of the
+     * parse (recognize or deferred), the budget, the local state and the recorded failures are
+     * those of this context. Failures at the end of the view are not recorded, the view may end
+     * before the input does.
+     * @return A new ParseContext
+     */
+    public ParseContext derive() {
+        ParseContext context = new ParseContext();
+        context.root = this.root != null ? this.root : this;
+        context.locals = this.locals;
+        return context;
+    }
+
+    /**
+     * State of a Parser for this parse, so that the Parser itself stays immutable and can be
+     * shared by threads. The state is shared with the contexts derived from this one.
+     * @param key the key, usually the Parser
+     * @param init creates the state on first use
+     * @param <T> the state type
+     * @return the state
+     */
+    public <T> T local(Object key, Supplier<T> init) {
+        return (T) this.locals.computeIfAbsent(key, __ -> init.get());
+    }
+
+    /**
+     * Drop the memo tables, when their entries may be failures caused by an exhausted budget
+     * or when the view of the input this context belongs to changes.
+     */
+    public void clearMemos() {
+        if (!this.memos.isEmpty()) {
+            this.memos.clear();
+        }
+        if (!this.recognizeMemos.isEmpty()) {
+            this.recognizeMemos.clear();
+        }
+        if (!this.deferredMemos.isEmpty()) {
+            this.deferredMemos.clear();
+        }
+    }
+
+    /**
+     * Forget the recorded failures. Called when a top-level parse starts, see
+     * {@link Parser#runParser(IBuffer, ParseBudget)} and {@link TypedParser#runParser(IBuffer)};
+     * call it before reusing a buffer with {@link Parser#runParser(IBuffer)}.
+     */
+    public void resetFailures() {
+        if (this.root != null) {
+            this.root.resetFailures();
+            return;
+        }
+        this.furthest = -1;
+        this.furthestHead = 0;
+        this.expectedCount = 0;
+    }
+
+    /**
+     * Record a failure, only the failures at the furthest position are kept.
+     * @param pos the failed position
+     * @param head the byte at the position
+     * @param expected description of what was expected, null if unknown
+     */
+    public void fail(long pos, int head, String expected) {
+        if (this.root != null) {
+            if (head >= 0) {
+                this.root.fail(pos, head, expected);
+            }
+            return;
+        }
+        if (pos < this.furthest) {
+            return;
+        }
+        if (pos > this.furthest) {
+            this.furthest = pos;
+            this.furthestHead = head;
+            this.expectedCount = 0;
+        }
+        if (expected == null) {
+            return;
+        }
+        for (int i = 0; i < this.expectedCount; i++) {
+            if (this.expected[i].equals(expected)) {
+                return;
+            }
+        }
+        if (this.expectedCount == this.expected.length) {
+            this.expected = Arrays.copyOf(this.expected, this.expectedCount * 2);
+        }
+        this.expected[this.expectedCount++] = expected;
+    }
+
+    /**
+     * @return the furthest failed position, -1 if nothing failed
+     */
+    public long getFurthestPos() {
+        if (this.root != null) {
+            return this.root.getFurthestPos();
+        }
+        return this.furthest;
+    }
+
+    /**
+     * @return what was expected at the furthest failed position
+     */
+    public List<String> getExpected() {
+        if (this.root != null) {
+            return this.root.getExpected();
+        }
+        return List.of(Arrays.copyOf(this.expected, this.expectedCount));
+    }
+
+    /**
+     * @return error message of the furthest failure since the last {@link #resetFailures()}, null if nothing failed
+     */
+    public String getError() {
+        if (this.root != null) {
+            return this.root.getError();
+        }
+        if (this.furthest < 0) {
+            return null;
+        }
+        return ErrorUtil.error(this.furthest, this.furthestHead,
+                this.expectedCount == 0 ? null : String.join(" or ", getExpected()));
+    }
+
+    /**
+     * Mark the positions before pos as not revisitable, the cached state behind them is dropped.
+     * @param pos the position
+     */
+    public void release(long pos) {
+        this.floor = Math.max(this.floor, pos);
+    }
+
+    /**
+     * A bounded direct-mapped table of results keyed by position,
+     * an entry is evicted by the next position mapped to the same slot.
+     */
+    class MemoTable {
+        private final long[] keys;
+        private final Result[] values;
+        private final int mask;
+
+        MemoTable(int size) {
+            int capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+            this.keys = new long[capacity];
+            this.values = new Result[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(this.keys, -1);
+        }
+
+        /**
+         * @param pos the position
+         * @return the cached result, null if there is none
+         */
+        Result get(long pos) {
+            int slot = (int) pos & this.mask;
+            if (this.keys[slot] != pos || pos < floor) {
+                return null;
+            }
+            return this.values[slot];
+        }
+
+        /**
+         * @param pos the position
+         * @param result the result
+         */
+        void put(long pos, Result result) {
+            int slot = (int) pos & this.mask;
+            this.keys[slot] = pos;
+            this.values[slot] = result;
+        }
+    }
+}
@@ -2,45 +2,74 @@ package io.github.janlely.jparser;
 
 import io.github.janlely.jparser.comb.BacktraceParser;
 import io.github.janlely.jparser.parsers.TextParsers;
-import io.github.janlely.jparser.util.ErrorUtil;
+import io.github.janlely.jparser.util.ByteSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 /**
  * This is the core class of Parser Combinator.
+ * A Parser is immutable once built: combinators return new Parsers, and the state of a parse
+ * is kept in the {@link ParseContext} of the buffer. So one Parser can be shared by threads,
+ * each parsing its own buffer. A {@link Rule} must be defined before the Parser is shared.
  */
 public abstract class Parser {
-    /**
-     * if is ignored
-     */
-    protected boolean ignore = false;
 
     /**
      * @return if is ignored
      */
     public boolean isIgnore() {
-        return this.ignore;
+        return false;
     }
 
 
     /**
      * Parse, but ignore the parsing result.
-     * @return Return this
+     * @return A new Parser
      */
     public Parser ignore() {
-        this.ignore = true;
-        return this;
+        return new Parser() {
+            @Override
+            public boolean isIgnore() {
+                return true;
+            }
+
+            @Override
+            public Result parse(IBuffer buffer) {
+                return Parser.this.parse(buffer);
+            }
+
+            @Override
+            public ByteSet first() {
+                return Parser.this.first();
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return Parser.this.candidates(buffer);
+            }
+        };
     }
 
     /**
+     * Failures are recorded in the {@link ParseContext} of the buffer and kept across calls,
+     * see {@link ParseContext#resetFailures()} to reuse a buffer.
      * @param buffer the input
      * @return parser result
      */
     public Result runParser(IBuffer buffer) {
+        ParseBudget budget = buffer.getContext().getBudget();
+        if (budget != null && !budget.step()) {
+            return Result.exhausted(buffer.getPos());
+        }
         Result result = parse(buffer);
         if (result.isError()) {
             return result;
@@ -52,6 +81,106 @@ public abstract class Parser {
         return result;
     }
 
+    /**
+     * Parse within a budget, see {@link ParseBudget}.
+     * If the budget runs out the cursor is restored and the Result {@link Result#isExhausted()},
+     * the cached state of the parse is dropped. Unless it runs inside another budgeted parse,
+     * the failures recorded in the {@link ParseContext} by earlier parses are forgotten.
+     * @param buffer the input
+     * @param budget the budget, it is reset before parsing
+     * @return parser result
+     */
+    public Result runParser(IBuffer buffer, ParseBudget budget) {
+        ParseContext context = buffer.getContext();
+        ParseBudget outer = context.getBudget();
+        long pos = buffer.getPos();
+        if (outer == null) {
+            context.resetFailures();
+        }
+        budget.start();
+        context.setBudget(budget);
+        Result result;
+        try {
+            result = runParser(buffer);
+        } finally {
+            context.setBudget(outer);
+        }
+        if (!budget.isExhausted()) {
+            return result;
+        }
+        context.clearMemos();
+        buffer.backward((int) (buffer.getPos() - pos));
+        return Result.exhausted(pos);
+    }
+
+    /**
+     * Recognize mode: only check the input, values are not built.
+     * Mappers are skipped and results are not accumulated, except under {@link #must(Predicate)}
+     * and {@link #chainWith(Function)} whose conditions need the values.
+     * @param buffer the input
+     * @return the consumed length, -1 if failed
+     */
+    public int recognize(IBuffer buffer) {
+        ParseContext context = buffer.getContext();
+        boolean recognizing = context.isRecognizing();
+        context.setRecognizing(true);
+        try {
+            Result result = runParser(buffer);
+            return result.isError() ? -1 : result.length;
+        } finally {
+            context.setRecognizing(recognizing);
+        }
+    }
+
+    /**
+     * Deferred mode: mappers are recorded as actions while parsing, and only the actions
+     * of the final result are run. Mappers on alternatives that are backtracked are never run.
+     * Results inspected by {@link #must(Predicate)} and {@link #chainWith(Function)} are
+     * still computed when they are parsed.
+     * @param buffer the input
+     * @return parser result
+     */
+    public Result runDeferred(IBuffer buffer) {
+        ParseContext context = buffer.getContext();
+        boolean deferring = context.isDeferring();
+        context.setDeferring(true);
+        Result result;
+        try {
+            result = runParser(buffer);
+        } finally {
+            context.setDeferring(deferring);
+        }
+        if (result.isSuccess() && !deferring) {
+            result.force();
+        }
+        return result;
+    }
+
+    /**
+     * Run a Parser whose values are needed, also in recognize or deferred mode.
+     * @param parser the Parser
+     * @param buffer the input
+     * @return parser result
+     */
+    private static Result runWithValues(Parser parser, IBuffer buffer) {
+        ParseContext context = buffer.getContext();
+        Result result;
+        if (!context.isRecognizing()) {
+            result = parser.runParser(buffer);
+        } else {
+            context.setRecognizing(false);
+            try {
+                result = parser.runParser(buffer);
+            } finally {
+                context.setRecognizing(true);
+            }
+        }
+        if (result.isSuccess() && context.isDeferring()) {
+            result.force();
+        }
+        return result;
+    }
+
     /**
      * The core function of a Parser
      * @param buffer The input
@@ -59,6 +188,93 @@ public abstract class Parser {
      */
     public abstract Result parse(IBuffer buffer);
 
+    /**
+     * The FIRST set: the bytes this Parser may start with. It is used by {@link #or(Parser)}
+     * and {@link #choose(Parser...)} to skip the alternatives that can not match.
+     * @return the leading bytes of any input this Parser accepts, null if unknown or if
+     * this Parser may succeed without consuming input
+     */
+    public ByteSet first() {
+        return null;
+    }
+
+    /**
+     * The lengths this Parser matches when the input is cut right after the match. They are
+     * used by {@link BacktraceParser} to enumerate the splits of the input, the cursor is not moved.
+     * @param buffer the input
+     * @return the lengths in ascending order, null if unknown
+     */
+    public int[] candidates(IBuffer buffer) {
+        return null;
+    }
+
+    /**
+     * Candidates of a Parser that consumes the same bytes whatever follows them.
+     * @param buffer the input
+     * @return the length of the match, or no length if it fails
+     */
+    protected int[] matchLength(IBuffer buffer) {
+        Result result = parse(buffer);
+        if (result.isError()) {
+            return new int[0];
+        }
+        buffer.backward(result.length);
+        return new int[] {result.length};
+    }
+
+    /**
+     * Candidates of repeating this Parser, known if this Parser has at most one candidate everywhere.
+     * @param buffer the input
+     * @param least repeat at least
+     * @param most repeat at most
+     * @return the lengths in ascending order, null if unknown
+     */
+    private int[] repeatCandidates(IBuffer buffer, int least, int most) {
+        int[] ends = new int[8];
+        int count = 0;
+        int offset = 0;
+        while (count < most) {
+            buffer.forward(offset);
+            int[] next = candidates(buffer);
+            buffer.backward(offset);
+            if (next == null || next.length > 1 || (next.length == 1 && next[0] == 0)) {
+                return null;
+            }
+            if (next.length == 0) {
+                break;
+            }
+            offset += next[0];
+            if (++count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ends[count] = offset;
+        }
+        return count < least ? new int[0] : Arrays.copyOfRange(ends, least, count + 1);
+    }
+
+    /**
+     * Failures of alternatives are not merged into a new Result, the one that got
+     * furthest is kept since it describes the error best.
+     * @param failure1 a failure, may be null
+     * @param failure2 another failure
+     * @return the failure at the furthest position
+     */
+    private static Result furthest(Result failure1, Result failure2) {
+        if (failure1 == null || failure2.pos > failure1.pos) {
+            return failure2;
+        }
+        return failure1;
+    }
+
+    /**
+     * @param first a FIRST set
+     * @param b the next byte, -1 at the end of input
+     * @return if a Parser with the FIRST set may match
+     */
+    private static boolean viable(ByteSet first, int b) {
+        return first == null || first.contains(b);
+    }
+
     /**
      * Connect with another parser
      * @param generator A function that takes the result of a previous parser and generates a new parser.
@@ -68,7 +284,7 @@ public abstract class Parser {
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                Result step1 = Parser.this.runParser(buffer);
+                Result step1 = runWithValues(Parser.this, buffer);
                 if (step1.isError()) {
                     return step1;
                 }
@@ -79,10 +295,17 @@ public abstract class Parser {
                 }
                 Result result = Result.empty();
                 result.length += step1.length + step2.length;
-                result.addAll(step1.getResult());
-                result.addAll(step2.getResult());
+                if (!buffer.getContext().isRecognizing()) {
+                    result.addAll(step1.getResult());
+                    result.addAll(step2.getResult());
+                }
                 return result;
             }
+
+            @Override
+            public ByteSet first() {
+                return Parser.this.first();
+            }
         };
     }
 
@@ -107,8 +330,37 @@ public abstract class Parser {
                 }
                 Result result = Result.empty();
                 result.length += step1.length + step2.length;
-                result.addAll(step1.getResult());
-                result.addAll(step2.getResult());
+                if (!buffer.getContext().isRecognizing()) {
+                    result.addAll(step1.getResult());
+                    result.addAll(step2.getResult());
+                }
+                return result;
+            }
+
+            @Override
+            public ByteSet first() {
+                return Parser.this.first();
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                int[] heads = Parser.this.candidates(buffer);
+                if (heads == null || heads.length > 1) {
+                    return null;
+                }
+                if (heads.length == 0) {
+                    return heads;
+                }
+                buffer.forward(heads[0]);
+                int[] tails = parser.candidates(buffer);
+                buffer.backward(heads[0]);
+                if (tails == null) {
+                    return null;
+                }
+                int[] result = new int[tails.length];
+                for (int i = 0; i < tails.length; i++) {
+                    result[i] = heads[0] + tails[i];
+                }
                 return result;
             }
         };
@@ -136,10 +388,17 @@ public abstract class Parser {
                 }
                 Result result = Result.empty();
                 result.length += step1.length + step2.length;
-                result.addAll(step1.getResult());
-                result.addAll(step2.getResult());
+                if (!buffer.getContext().isRecognizing()) {
+                    result.addAll(step1.getResult());
+                    result.addAll(step2.getResult());
+                }
                 return result;
             }
+
+            @Override
+            public ByteSet first() {
+                return Parser.this.first();
+            }
         };
     }
 
@@ -152,7 +411,7 @@ public abstract class Parser {
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                Result result = Parser.this.runParser(buffer);
+                Result result = runWithValues(Parser.this, buffer);
                 if (result.isError()) {
                     return result;
                 }
@@ -165,6 +424,11 @@ public abstract class Parser {
                         .pos(buffer.getPos())
                         .build();
             }
+
+            @Override
+            public ByteSet first() {
+                return Parser.this.first();
+            }
         };
     }
 
@@ -173,7 +437,7 @@ public abstract class Parser {
      * @return A new parser that will execute the current parser one or infinite times.
      */
     public Parser some() {
-        return chain(() -> many());
+        return chain(many());
     }
 
     /**
@@ -185,25 +449,177 @@ public abstract class Parser {
             @Override
             public Result parse(IBuffer buffer) {
                 Result result = Result.empty();
+                boolean values = !buffer.getContext().isRecognizing();
                 Result tmp = Parser.this.runParser(buffer);
                 if (tmp.isError()) {
                     return result;
                 }
                 result.length += tmp.length;
-                result.addAll(tmp.getResult());
+                if (values) {
+                    result.addAll(tmp.getResult());
+                }
                 while(true) {
                     tmp = Parser.this.runParser(buffer);
                     if (tmp.isError()) {
                         break;
                     }
                     result.length += tmp.length;
-                    result.addAll(tmp.getResult());
+                    if (values) {
+                        result.addAll(tmp.getResult());
+                    }
                 }
                 return result;
             }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return Parser.this.repeatCandidates(buffer, 0, Integer.MAX_VALUE);
+            }
         };
     }
 
+    /**
+     * Repeat at least 0 times and fold the results into one value, instead of collecting them.
+     * The value is the single result, the folder is skipped in recognize mode.
+     * @param init creates the initial value for each parse
+     * @param folder combines the value with the result list of each repetition
+     * @param <A> the value type
+     * @return A new Parser
+     */
+    public <A> Parser foldMany(Supplier<A> init, BiFunction<A, List, A> folder) {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                ParseContext context = buffer.getContext();
+                A value = context.isRecognizing() ? null : init.get();
+                int length = 0;
+                while (true) {
+                    Result tmp = Parser.this.runParser(buffer);
+                    if (tmp.isError()) {
+                        break;
+                    }
+                    length += tmp.length;
+                    if (!context.isRecognizing()) {
+                        value = folder.apply(value, context.isDeferring()
+                                ? Action.force(tmp.getResult()) : tmp.getResult());
+                    }
+                    if (tmp.length == 0) {
+                        break;
+                    }
+                }
+                List result = new ArrayList(1);
+                if (!context.isRecognizing()) {
+                    result.add(value);
+                }
+                return Result.builder()
+                        .result(result)
+                        .length(length)
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * Streaming {@link #many()}, see {@link #iterator(IBuffer, Parser)}.
+     * @param buffer the input
+     * @return the result lists of the repetitions
+     */
+    public Iterator<List> iterator(IBuffer buffer) {
+        return iterator(buffer, null);
+    }
+
+    /**
+     * Streaming {@link #sepBy(Parser)}: the elements are parsed lazily, one for each call of next.
+     * The input of an element is committed once it is parsed and no element is retained,
+     * so that a record-oriented input of any size is processed in constant memory.
+     * The iteration ends at the first element that fails, the cursor is then after the last element.
+     * @param buffer the input
+     * @param separator the separator Parser, its result is dropped; null if there is none
+     * @return the result lists of the elements
+     */
+    public Iterator<List> iterator(IBuffer buffer, Parser separator) {
+        return new Iterator<>() {
+            private Result next;
+            private boolean first = true;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (this.next == null && !this.done) {
+                    long pos = buffer.getPos();
+                    this.next = element(buffer, this.first ? null : separator);
+                    this.first = false;
+                    // an element that consumes nothing would be parsed again forever
+                    this.done = this.next == null || buffer.getPos() == pos;
+                }
+                return this.next != null;
+            }
+
+            @Override
+            public List next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List list = this.next.getResult();
+                this.next = null;
+                return list;
+            }
+        };
+    }
+
+    /**
+     * Streaming {@link #many()}, see {@link #forEach(IBuffer, Parser, Consumer)}.
+     * @param buffer the input
+     * @param consumer receives the result list of each repetition
+     * @return number of repetitions
+     */
+    public long forEach(IBuffer buffer, Consumer<List> consumer) {
+        return forEach(buffer, null, consumer);
+    }
+
+    /**
+     * Streaming {@link #sepBy(Parser)}: each element is handed to the consumer as soon as it is
+     * parsed, see {@link #iterator(IBuffer, Parser)}.
+     * @param buffer the input
+     * @param separator the separator Parser, its result is dropped; null if there is none
+     * @param consumer receives the result list of each element
+     * @return number of elements
+     */
+    public long forEach(IBuffer buffer, Parser separator, Consumer<List> consumer) {
+        long count = 0;
+        Iterator<List> elements = iterator(buffer, separator);
+        while (elements.hasNext()) {
+            consumer.accept(elements.next());
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Parse one element and commit its input.
+     * @param buffer the input
+     * @param separator the separator to parse before the element, null if there is none
+     * @return the result of the element, null if failed
+     */
+    private Result element(IBuffer buffer, Parser separator) {
+        long pos = buffer.getPos();
+        buffer.mark();
+        Result result = separator == null ? null : separator.runParser(buffer);
+        if (result == null || result.isSuccess()) {
+            result = runParser(buffer);
+        }
+        if (result.isError()) {
+            buffer.backward((int) (buffer.getPos() - pos));
+            buffer.unmark();
+            return null;
+        }
+        if (buffer.getContext().isDeferring()) {
+            result.force();
+        }
+        buffer.commit();
+        return result;
+    }
+
     /**
      * repeat this till parser success
      * @param parser the Stop-parser
@@ -239,7 +655,7 @@ public abstract class Parser {
      * @return A new Parser
      */
     public Parser someTill(Supplier<Parser> parser, boolean greedy) {
-        return this.chain(() -> manyTill(parser.get(), greedy));
+        return repeatTill(parser, 1, Integer.MAX_VALUE, greedy, false);
     }
 
 
@@ -250,7 +666,7 @@ public abstract class Parser {
      * @return A new parser that will execute the current parser {from} to {end} times.
      */
     public Parser range(int from, int end) {
-        return repeat(from).chain(() -> attempt(end - from));
+        return repeat(from).chain(attempt(end - from));
     }
 
     /**
@@ -263,6 +679,7 @@ public abstract class Parser {
             @Override
             public Result parse(IBuffer buffer) {
                 Result result = Result.empty();
+                boolean values = !buffer.getContext().isRecognizing();
                 if (n <= 0) {
                     return result;
                 }
@@ -271,7 +688,9 @@ public abstract class Parser {
                     return result;
                 }
                 result.length += tmp.length;
-                result.addAll(tmp.getResult());
+                if (values) {
+                    result.addAll(tmp.getResult());
+                }
                 int i = 1;
                 while(i++ < n) {
                     tmp = Parser.this.runParser(buffer);
@@ -279,10 +698,17 @@ public abstract class Parser {
                         break;
                     }
                     result.length += tmp.length;
-                    result.addAll(tmp.getResult());
+                    if (values) {
+                        result.addAll(tmp.getResult());
+                    }
                 }
                 return result;
             }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return Parser.this.repeatCandidates(buffer, 0, Math.max(n, 0));
+            }
         };
     }
 
@@ -296,6 +722,7 @@ public abstract class Parser {
             @Override
             public Result parse(IBuffer buffer) {
                 Result result = Result.empty();
+                boolean values = !buffer.getContext().isRecognizing();
                 if (n <= 0) {
                     return result;
                 }
@@ -304,7 +731,9 @@ public abstract class Parser {
                     return result;
                 }
                 result.length += tmp.length;
-                result.addAll(tmp.getResult());
+                if (values) {
+                    result.addAll(tmp.getResult());
+                }
                 int i = 1;
                 while(i++ < n) {
                     tmp = Parser.this.runParser(buffer);
@@ -312,10 +741,22 @@ public abstract class Parser {
                         return tmp;
                     }
                     result.length += tmp.length;
-                    result.addAll(tmp.getResult());
+                    if (values) {
+                        result.addAll(tmp.getResult());
+                    }
                 }
                 return result;
             }
+
+            @Override
+            public ByteSet first() {
+                return n > 0 ? Parser.this.first() : null;
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return Parser.this.repeatCandidates(buffer, Math.max(n, 0), Math.max(n, 0));
+            }
         };
     }
 
@@ -348,69 +789,77 @@ public abstract class Parser {
      * @return A new Parser
      */
     public Parser repeatTill(Supplier<Parser> parser, int least, int most, boolean greedy, boolean keepStopResult) {
+        Parser repeatLeast = least > 0 ? repeat(least) : null;
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                int orgPos = buffer.getPos();
-                Result repeatResult = Parser.this.repeat(least).runParser(buffer);
-                if (repeatResult.isError()) {
-                    return repeatResult;
+                long orgPos = buffer.getPos();
+                Result result = Result.empty();
+                if (repeatLeast != null) {
+                    Result repeatResult = repeatLeast.runParser(buffer);
+                    if (repeatResult.isError()) {
+                        return repeatResult;
+                    }
+                    result.addAll(repeatResult.getResult());
+                    result.incLen(repeatResult.getLength());
                 }
+                boolean values = !buffer.getContext().isRecognizing();
                 Parser stopParser = parser.get();
-                Result bestLeftResult = null;
+                // the best stop found so far: where it starts, as a length and as a size of the
+                // result list, instead of a copy of the results before it
+                int bestLength = -1;
+                int bestSize = 0;
                 Result bestStopResult = null;
-                Result currentParsedResult = repeatResult.copy();
                 int n = least;
                 while (n++ <= most) {
                     Result stopResult = stopParser.runParser(buffer);
                     if (stopResult.isSuccess()) {
-                        if (bestLeftResult == null|| bestLeftResult.getLength() + bestStopResult.length < currentParsedResult.length + stopResult.getLength()) {
-                            bestLeftResult = currentParsedResult.copy();
+                        if (bestStopResult == null || bestLength + bestStopResult.getLength() < result.getLength() + stopResult.getLength()) {
+                            bestLength = result.getLength();
+                            bestSize = values ? result.getResult().size() : 0;
                             bestStopResult = stopResult;
                         }
+                        if (!greedy) {
+                            break;
+                        }
+                        buffer.backward(stopResult.getLength());
                     }
-                    if (stopResult.isSuccess() && !greedy) {
+                    if (n > most) {
                         break;
                     }
-                    if (n > most) {
+                    if (!buffer.getContext().backtrack()) {
                         break;
                     }
-                    buffer.backward(stopResult.length);
-                    Result result = Parser.this.runParser(buffer);
-                    if (result.isError()) {
+                    Result tmp = Parser.this.runParser(buffer);
+                    if (tmp.isError() || tmp.getLength() == 0) {
                         break;
                     }
-                    currentParsedResult.addAll(result.getResult());
-                    currentParsedResult.incLen(result.getLength());
+                    if (values) {
+                        result.addAll(tmp.getResult());
+                    }
+                    result.incLen(tmp.getLength());
+                }
+                buffer.backward((int) (buffer.getPos() - orgPos));
+                if (bestStopResult == null) {
+                    return Result.fail(buffer);
                 }
-                if (bestLeftResult == null) {
-                    buffer.backward(buffer.getPos() -  orgPos);
-                    return Result.builder()
-                            .pos(orgPos)
-                            .errorMsg(ErrorUtil.error(buffer))
-                            .build();
+                if (values) {
+                    List list = result.getResult();
+                    list.subList(bestSize, list.size()).clear();
                 }
+                result.length = bestLength;
                 if (keepStopResult) {
-                    buffer.backward(buffer.getPos() - orgPos);
-                    buffer.forward(bestLeftResult.getLength() + bestStopResult.getLength());
-                    return merge(bestLeftResult, bestStopResult);
+                    if (values) {
+                        result.addAll(bestStopResult.getResult());
+                    }
+                    result.incLen(bestStopResult.getLength());
                 }
-                buffer.backward(buffer.getPos() - orgPos);
-                buffer.forward(bestLeftResult.getLength());
-                return bestLeftResult;
+                buffer.forward(result.getLength());
+                return result;
             }
         };
     }
 
-    private static Result merge(Result left , Result right) {
-        Result result = Result.empty();
-        result.addAll(left.getResult());
-        result.addAll(right.getResult());
-        result.incLen(left.getLength());
-        result.incLen(right.getLength());
-        return result;
-    }
-
 
     /**
      * Map the result to another value.
@@ -422,12 +871,27 @@ public abstract class Parser {
             @Override
             public Result parse(IBuffer buffer) {
                 Result result = Parser.this.runParser(buffer);
-                if (result.isError()) {
+                ParseContext context = buffer.getContext();
+                if (result.isError() || context.isRecognizing()) {
+                    return result;
+                }
+                if (context.isDeferring()) {
+                    result.defer(mapper);
                     return result;
                 }
                 result.map(mapper);
                 return result;
             }
+
+            @Override
+            public ByteSet first() {
+                return Parser.this.first();
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return Parser.this.candidates(buffer);
+            }
         };
     }
 
@@ -438,11 +902,11 @@ public abstract class Parser {
      */
     public Parser trim(boolean includeNewline) {
         if (includeNewline) {
-            return TextParsers.whites().chain(() -> this)
-                    .chain(() -> TextParsers.whites());
+            return TextParsers.whites().chain(this)
+                    .chain(TextParsers.whites());
         }
-        return TextParsers.spaces().chain(() -> this)
-                .chain(() -> TextParsers.spaces());
+        return TextParsers.spaces().chain(this)
+                .chain(TextParsers.spaces());
     }
 
     /**
@@ -451,7 +915,7 @@ public abstract class Parser {
      * @return A new Parser that is composed of the separator.
      */
     public Parser sepBy(Parser parser) {
-        return chain(() -> parser.ignore().chain(() -> this).many());
+        return chain(parser.ignore().chain(this).many());
     }
 
 
@@ -468,15 +932,15 @@ public abstract class Parser {
                 if (result.isSuccess()) {
                     return result;
                 }
+                if (!buffer.getContext().backtrack()) {
+                    return Result.exhausted(buffer.getPos());
+                }
                 Parser theParser = parser.get();
                 Result result2 = theParser.runParser(buffer);
                 if (result2.isSuccess()) {
                     return result2;
                 }
-                return Result.builder()
-                        .pos(buffer.getPos())
-                        .errorMsg("No suitable Parser to choose")
-                        .build();
+                return furthest(result, result2);
             }
         };
     }
@@ -488,20 +952,45 @@ public abstract class Parser {
      */
     public Parser or(Parser parser) {
         return new Parser() {
+            /**
+             * FIRST sets of both alternatives, resolved on the first parse
+             */
+            private volatile ByteSet[] firsts;
+
             @Override
             public Result parse(IBuffer buffer) {
-                Result result = Parser.this.runParser(buffer);
-                if (result.isSuccess()) {
-                    return result;
+                ByteSet[] firsts = this.firsts;
+                if (firsts == null) {
+                    firsts = new ByteSet[] {Parser.this.first(), parser.first()};
+                    this.firsts = firsts;
                 }
-                Result result2 = parser.runParser(buffer);
-                if (result2.isSuccess()) {
-                    return result2;
+                int b = buffer.peek(0);
+                Result failure = null;
+                if (viable(firsts[0], b)) {
+                    Result result = Parser.this.runParser(buffer);
+                    if (result.isSuccess()) {
+                        return result;
+                    }
+                    failure = result;
                 }
-                return Result.builder()
-                        .pos(buffer.getPos())
-                        .errorMsg("No suitable Parser to choose")
-                        .build();
+                if (viable(firsts[1], b)) {
+                    if (failure != null && !buffer.getContext().backtrack()) {
+                        return Result.exhausted(buffer.getPos());
+                    }
+                    Result result2 = parser.runParser(buffer);
+                    if (result2.isSuccess()) {
+                        return result2;
+                    }
+                    failure = furthest(failure, result2);
+                }
+                return failure == null ? Result.fail(buffer) : failure;
+            }
+
+            @Override
+            public ByteSet first() {
+                ByteSet first1 = Parser.this.first();
+                ByteSet first2 = parser.first();
+                return first1 == null || first2 == null ? null : first1.union(first2);
             }
         };
     }
@@ -514,6 +1003,74 @@ public abstract class Parser {
         return attempt(1);
     }
 
+    /**
+     * Parse and commit the input on success: the bytes before the cursor will not be
+     * revisited, so that a streaming buffer can release them.
+     * @return A new Parser
+     */
+    public Parser commit() {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                buffer.mark();
+                Result result = Parser.this.runParser(buffer);
+                if (result.isError()) {
+                    buffer.unmark();
+                    return result;
+                }
+                buffer.commit();
+                return result;
+            }
+
+            @Override
+            public ByteSet first() {
+                return Parser.this.first();
+            }
+        };
+    }
+
+    /**
+     * Memoize the results of this Parser for the current parse, see {@link #memo(int)}.
+     * @return A new Parser
+     */
+    public Parser memo() {
+        return memo(1024);
+    }
+
+    /**
+     * Memoize the results of this Parser for the current parse (packrat parsing).
+     * A rule that is tried again at the same position returns the cached result instead of
+     * parsing again. The cache is a bounded table of the given size kept in the
+     * {@link ParseContext} of the buffer.
+     * @param size size of the table
+     * @return A new Parser
+     */
+    public Parser memo(int size) {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                ParseContext.MemoTable table = buffer.getContext().memo(this, size);
+                long pos = buffer.getPos();
+                Result cached = table.get(pos);
+                if (cached != null) {
+                    if (cached.isError()) {
+                        return cached;
+                    }
+                    buffer.forward(cached.length);
+                    return cached.copy();
+                }
+                Result result = Parser.this.runParser(buffer);
+                table.put(pos, result.isError() ? result : result.copy());
+                return result;
+            }
+
+            @Override
+            public ByteSet first() {
+                return Parser.this.first();
+            }
+        };
+    }
+
     /**
      * Perform parsing, but do not consume input
      * @return A new Parser
@@ -529,9 +1086,22 @@ public abstract class Parser {
                 buffer.backward(result.length);
                 return Result.empty();
             }
+
+            @Override
+            public ByteSet first() {
+                return Parser.this.first();
+            }
         };
     }
 
+    /**
+     * Create a Rule that is defined later, to build a recursive grammar once.
+     * @return A new Rule
+     */
+    public static Rule ref() {
+        return new Rule();
+    }
+
     /**
      * Do nothing but return success
      * @return A empty Parser
@@ -582,6 +1152,11 @@ public abstract class Parser {
             public Result parse(IBuffer buffer) {
                 return Result.broken();
             }
+
+            @Override
+            public ByteSet first() {
+                return ByteSet.EMPTY;
+            }
         };
     }
 
@@ -625,11 +1200,70 @@ public abstract class Parser {
      * @return A new Parser that is composed of the parsers
      */
     public static Parser choose(Parser ...parsers) {
-        Parser parser = Parser.broken();
-        for (Parser p : parsers) {
-            parser = parser.or(p);
+        return new Parser() {
+            /**
+             * viable alternatives for each leading byte, and at the end of input
+             */
+            private volatile Parser[][] table;
+
+            @Override
+            public Result parse(IBuffer buffer) {
+                Parser[][] table = this.table;
+                if (table == null) {
+                    table = dispatch(parsers);
+                    this.table = table;
+                }
+                int b = buffer.peek(0);
+                Result failure = null;
+                for (Parser parser : table[b < 0 ? 256 : b]) {
+                    if (failure != null && !buffer.getContext().backtrack()) {
+                        return Result.exhausted(buffer.getPos());
+                    }
+                    Result result = parser.runParser(buffer);
+                    if (result.isSuccess()) {
+                        return result;
+                    }
+                    failure = furthest(failure, result);
+                }
+                return failure == null ? Result.fail(buffer) : failure;
+            }
+
+            @Override
+            public ByteSet first() {
+                ByteSet result = ByteSet.EMPTY;
+                for (Parser parser : parsers) {
+                    ByteSet first = parser.first();
+                    if (first == null) {
+                        return null;
+                    }
+                    result = result.union(first);
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Build a dispatch table from the FIRST sets of the alternatives.
+     * @param parsers Parsers candidates
+     * @return viable alternatives in order for each byte value, and for the end of input at 256
+     */
+    private static Parser[][] dispatch(Parser[] parsers) {
+        ByteSet[] firsts = new ByteSet[parsers.length];
+        for (int i = 0; i < parsers.length; i++) {
+            firsts[i] = parsers[i].first();
         }
-        return parser;
+        Parser[][] table = new Parser[257][];
+        for (int b = -1; b < 256; b++) {
+            List<Parser> viables = new ArrayList<>();
+            for (int i = 0; i < parsers.length; i++) {
+                if (viable(firsts[i], b)) {
+                    viables.add(parsers[i]);
+                }
+            }
+            table[b < 0 ? 256 : b] = viables.toArray(new Parser[0]);
+        }
+        return table;
     }
 
     /**
@@ -1,5 +1,6 @@
 package io.github.janlely.jparser;
 
+import io.github.janlely.jparser.util.ErrorUtil;
 import lombok.Builder;
 import lombok.Getter;
 
@@ -20,9 +21,21 @@ public class Result {
     @Getter
     private List result;
     /**
-     * error message
+     * error message, rendered on demand for failures created by {@link #fail(IBuffer, String)}
      */
     String errorMsg;
+    /**
+     * the byte at the failed position, -1 at the end of input
+     */
+    int head;
+    /**
+     * description of what was expected at the failed position, null if unknown
+     */
+    String expected;
+    /**
+     * if the parse was aborted by its {@link ParseBudget}
+     */
+    boolean exhausted;
     /**
      * result length
      */
@@ -33,7 +46,7 @@ public class Result {
      * the position
      */
     @Getter
-    int pos;
+    long pos;
 
     /**
      * @return if is success
@@ -74,6 +87,42 @@ public class Result {
         this.result.addAll(list);
     }
 
+    /**
+     * @return the error message, null if is success
+     */
+    public String getErrorMsg() {
+        if (this.errorMsg == null && isError()) {
+            this.errorMsg = ErrorUtil.error(this.pos, this.head, this.expected);
+        }
+        return this.errorMsg;
+    }
+
+    /**
+     * A failure at the cursor of the buffer, it is also recorded in the {@link ParseContext}.
+     * The error message is not rendered until it is asked for.
+     * @param buffer the buffer
+     * @param expected description of what was expected, null if unknown
+     * @return a failed Result
+     */
+    public static Result fail(IBuffer buffer, String expected) {
+        long pos = buffer.getPos();
+        int head = buffer.peek(0);
+        buffer.getContext().fail(pos, head, expected);
+        return Result.builder()
+                .pos(pos)
+                .head(head)
+                .expected(expected)
+                .build();
+    }
+
+    /**
+     * @param buffer the buffer
+     * @return a failed Result
+     */
+    public static Result fail(IBuffer buffer) {
+        return fail(buffer, null);
+    }
+
     /**
      * @return a empty Result
      */
@@ -112,6 +161,21 @@ public class Result {
         this.result = List.of(mapper.apply(this.result));
     }
 
+    /**
+     * Record the mapper as an action, it is run by {@link #force()}.
+     * @param mapper the mapper
+     */
+    void defer(Function<List, ?> mapper) {
+        this.result = List.of(new Action(mapper, this.result));
+    }
+
+    /**
+     * Run the recorded actions of a deferred result.
+     */
+    void force() {
+        this.result = Action.force(this.result);
+    }
+
     /**
      * @return if reach end
      */
@@ -122,6 +186,25 @@ public class Result {
                 .build();
     }
 
+    /**
+     * @param pos the position
+     * @return the failure of a parse whose {@link ParseBudget} is exhausted
+     */
+    public static Result exhausted(long pos) {
+        return Result.builder()
+                .pos(pos)
+                .errorMsg("parse budget exhausted")
+                .exhausted(true)
+                .build();
+    }
+
+    /**
+     * @return if the parse was aborted by its {@link ParseBudget}
+     */
+    public boolean isExhausted() {
+        return this.exhausted;
+    }
+
     /**
      * @return broken result
      */
@@ -0,0 +1,75 @@
+package io.github.janlely.jparser;
+
+import io.github.janlely.jparser.util.ByteSet;
+
+/**
+ * A reference to a Parser that is defined later, used to build a recursive grammar once.
+ * <pre>
+ * Rule expr = Parser.ref();
+ * Parser factor = TextParsers.one('(').ignore().chain(expr).chain(TextParsers.one(')').ignore());
+ * expr.set(factor.or(NumberParsers.anyIntStr()));
+ * </pre>
+ */
+public class Rule extends Parser {
+
+    /**
+     * the referenced Parser
+     */
+    private Parser parser;
+    private volatile ByteSet first;
+    /**
+     * written after first, so that a thread seeing it also sees first
+     */
+    private volatile boolean resolved;
+    /**
+     * set while resolving, a thread that sees it treats the FIRST set as unknown
+     */
+    private boolean resolving;
+
+    /**
+     * Define this rule.
+     * @param parser the referenced Parser
+     * @return this
+     */
+    public Rule set(Parser parser) {
+        if (this.parser != null) {
+            throw new IllegalStateException("rule is already defined");
+        }
+        this.parser = parser;
+        return this;
+    }
+
+    /**
+     * @return the referenced Parser, null if undefined
+     */
+    public Parser get() {
+        return this.parser;
+    }
+
+    @Override
+    public Result parse(IBuffer buffer) {
+        if (this.parser == null) {
+            throw new IllegalStateException("rule is not defined");
+        }
+        return this.parser.runParser(buffer);
+    }
+
+    /**
+     * The FIRST set of a left-recursive rule is unknown.
+     * @return the FIRST set of the referenced Parser
+     */
+    @Override
+    public ByteSet first() {
+        if (this.resolved) {
+            return this.first;
+        }
+        if (this.parser == null || this.resolving) {
+            return null;
+        }
+        this.resolving = true;
+        this.first = this.parser.first();
+        this.resolving = false;
+        this.resolved = true;
+        return this.first;
+    }
+}
@@ -0,0 +1,335 @@
+package io.github.janlely.jparser;
+
+import io.github.janlely.jparser.parsers.TypedParsers;
+import io.github.janlely.jparser.util.ErrorUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+/**
+ * A Parser that produces a single value of type T.
+ * The success path passes the value itself from step to step, without a result list.
+ * Existing Parsers can be adapted with {@link #of(Parser, Function)} and {@link #toParser()}.
+ * @param <T> the value type
+ */
+public abstract class TypedParser<T> {
+
+    /**
+     * returned by {@link #run(IBuffer)} on failure
+     */
+    protected static final Object FAIL = new Object();
+
+    /**
+     * The core function of a TypedParser.
+     * On failure the cursor must be left where it was, the failure is described
+     * by the {@link ParseContext} of the buffer.
+     * @param buffer The input
+     * @return the value, or {@link #FAIL}
+     */
+    protected abstract Object run(IBuffer buffer);
+
+    /**
+     * The failures recorded in the {@link ParseContext} by earlier parses are forgotten,
+     * the error message of a failure describes this parse only.
+     * @param buffer the input
+     * @return parser result
+     */
+    public TypedResult<T> runParser(IBuffer buffer) {
+        long pos = buffer.getPos();
+        ParseContext context = buffer.getContext();
+        context.resetFailures();
+        Object value = run(buffer);
+        if (value == FAIL) {
+            String error = context.getError();
+            return TypedResult.failure(pos, error != null ? error : ErrorUtil.error(buffer));
+        }
+        return TypedResult.success((T) value, (int) (buffer.getPos() - pos), pos);
+    }
+
+    /**
+     * Record a failure at the cursor.
+     * @param buffer the input
+     * @param expected description of what was expected, null if unknown
+     * @return FAIL
+     */
+    protected static Object fail(IBuffer buffer, String expected) {
+        buffer.getContext().fail(buffer.getPos(), buffer.peek(0), expected);
+        return FAIL;
+    }
+
+    /**
+     * @param buffer the input
+     * @param pos position to restore
+     * @return FAIL
+     */
+    private static Object rewind(IBuffer buffer, long pos) {
+        buffer.backward((int) (buffer.getPos() - pos));
+        return FAIL;
+    }
+
+    /**
+     * Map the value to another value.
+     * @param mapper The mapper
+     * @param <R> the new value type
+     * @return A new TypedParser
+     */
+    public <R> TypedParser<R> map(Function<? super T, ? extends R> mapper) {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                Object value = TypedParser.this.run(buffer);
+                return value == FAIL ? FAIL : mapper.apply((T) value);
+            }
+        };
+    }
+
+    /**
+     * Connect with another parser and combine both values.
+     * @param next the next TypedParser
+     * @param combiner combines the two values
+     * @param <U> value type of next
+     * @param <R> the combined value type
+     * @return A new TypedParser
+     */
+    public <U, R> TypedParser<R> then(TypedParser<U> next, BiFunction<? super T, ? super U, ? extends R> combiner) {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                long pos = buffer.getPos();
+                Object left = TypedParser.this.run(buffer);
+                if (left == FAIL) {
+                    return FAIL;
+                }
+                Object right = next.run(buffer);
+                if (right == FAIL) {
+                    return rewind(buffer, pos);
+                }
+                return combiner.apply((T) left, (U) right);
+            }
+        };
+    }
+
+    /**
+     * Connect with another parser generated from the value of this.
+     * @param generator generates the next TypedParser from the value
+     * @param <R> the new value type
+     * @return A new TypedParser
+     */
+    public <R> TypedParser<R> flatMap(Function<? super T, TypedParser<R>> generator) {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                long pos = buffer.getPos();
+                Object value = TypedParser.this.run(buffer);
+                if (value == FAIL) {
+                    return FAIL;
+                }
+                Object result = generator.apply((T) value).run(buffer);
+                return result == FAIL ? rewind(buffer, pos) : result;
+            }
+        };
+    }
+
+    /**
+     * Parse this then next, keep the value of next.
+     * @param next the next TypedParser
+     * @param <U> value type of next
+     * @return A new TypedParser
+     */
+    public <U> TypedParser<U> skipLeft(TypedParser<U> next) {
+        return then(next, (left, right) -> right);
+    }
+
+    /**
+     * Parse this then next, keep the value of this.
+     * @param next the next TypedParser
+     * @return A new TypedParser
+     */
+    public TypedParser<T> skipRight(TypedParser<?> next) {
+        return then(next, (left, right) -> left);
+    }
+
+    /**
+     * If this Parser failed than try another.
+     * @param other the other TypedParser
+     * @return A new TypedParser
+     */
+    public TypedParser<T> or(TypedParser<? extends T> other) {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                Object value = TypedParser.this.run(buffer);
+                return value == FAIL ? other.run(buffer) : value;
+            }
+        };
+    }
+
+    /**
+     * Add a conditional judgment
+     * @param predicate A requirement that the value must satisfy.
+     * @return A new TypedParser
+     */
+    public TypedParser<T> must(Predicate<? super T> predicate) {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                long pos = buffer.getPos();
+                Object value = TypedParser.this.run(buffer);
+                if (value == FAIL) {
+                    return FAIL;
+                }
+                return predicate.test((T) value) ? value : rewind(buffer, pos);
+            }
+        };
+    }
+
+    /**
+     * Repeat at least 0 times and collect the values, without an intermediate list.
+     * The repetition stops if this Parser succeeds without consuming input.
+     * @param collector the Collector
+     * @param <A> the accumulation type
+     * @param <R> the collected type
+     * @return A new TypedParser
+     */
+    public <A, R> TypedParser<R> manyInto(Collector<? super T, A, R> collector) {
+        Supplier<A> supplier = collector.supplier();
+        BiConsumer<A, ? super T> accumulator = collector.accumulator();
+        Function<A, R> finisher = collector.finisher();
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                A container = supplier.get();
+                while (true) {
+                    long pos = buffer.getPos();
+                    Object value = TypedParser.this.run(buffer);
+                    if (value == FAIL) {
+                        break;
+                    }
+                    ((BiConsumer<A, Object>) accumulator).accept(container, value);
+                    if (buffer.getPos() == pos) {
+                        break;
+                    }
+                }
+                return finisher.apply(container);
+            }
+        };
+    }
+
+    /**
+     * Repeat at least 0 times
+     * @return A new TypedParser
+     */
+    public TypedParser<List<T>> many() {
+        return manyInto(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Repeat at least once
+     * @return A new TypedParser
+     */
+    public TypedParser<List<T>> some() {
+        return many().must(values -> !values.isEmpty());
+    }
+
+    /**
+     * Split by a separator, the separator will not appear in the result.
+     * @param separator the separator
+     * @return A new TypedParser that parses at least one value
+     */
+    public TypedParser<List<T>> sepBy(TypedParser<?> separator) {
+        TypedParser<List<T>> rest = separator.skipLeft(this).many();
+        return then(rest, (head, tail) -> {
+            tail.add(0, head);
+            return tail;
+        });
+    }
+
+    /**
+     * make this Parser optional
+     * @return A new TypedParser
+     */
+    public TypedParser<Optional<T>> optional() {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                Object value = TypedParser.this.run(buffer);
+                return value == FAIL ? Optional.empty() : Optional.ofNullable((T) value);
+            }
+        };
+    }
+
+    /**
+     * Trim leading and trailing whitespace.
+     * @param includeNewline true if newline need to be trimmed
+     * @return A new TypedParser
+     */
+    public TypedParser<T> trim(boolean includeNewline) {
+        TypedParser<Void> white = includeNewline ? TypedParsers.whites() : TypedParsers.spaces();
+        return white.skipLeft(this).skipRight(white);
+    }
+
+    /**
+     * Adapt to a Parser, the result list contains the single value.
+     * @return A new Parser
+     */
+    public Parser toParser() {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                long pos = buffer.getPos();
+                Object value = TypedParser.this.run(buffer);
+                if (value == FAIL) {
+                    return Result.fail(buffer);
+                }
+                return Result.builder()
+                        .result(Collections.singletonList(value))
+                        .length((int) (buffer.getPos() - pos))
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * Adapt a Parser, the value is its result list.
+     * @param parser the Parser
+     * @return A new TypedParser
+     */
+    public static TypedParser<List> of(Parser parser) {
+        return of(parser, Function.identity());
+    }
+
+    /**
+     * Adapt a Parser and map its result list to a value.
+     * @param parser the Parser
+     * @param mapper the mapper
+     * @param <T> the value type
+     * @return A new TypedParser
+     */
+    public static <T> TypedParser<T> of(Parser parser, Function<List, ? extends T> mapper) {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                Result result = parser.runParser(buffer);
+                return result.isError() ? FAIL : mapper.apply(result.getResult());
+            }
+        };
+    }
+
+    /**
+     * Create a TypedRule that is defined later, to build a recursive grammar once.
+     * @param <T> the value type
+     * @return A new TypedRule
+     */
+    public static <T> TypedRule<T> ref() {
+        return new TypedRule<>();
+    }
+}
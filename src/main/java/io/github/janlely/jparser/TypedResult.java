@@ -0,0 +1,87 @@
+package io.github.janlely.jparser;
+
+import lombok.Getter;
+
+/**
+ * the result type of a TypedParser
+ * @param <T> the value type
+ */
+public class TypedResult<T> {
+
+    /**
+     * the value, null if is error
+     */
+    private final T value;
+    /**
+     * if is success
+     */
+    private final boolean success;
+    /**
+     * result length
+     */
+    @Getter
+    private final int length;
+    /**
+     * the position, where the parse started
+     */
+    @Getter
+    private final long pos;
+    /**
+     * error message
+     */
+    @Getter
+    private final String errorMsg;
+
+    private TypedResult(T value, boolean success, int length, long pos, String errorMsg) {
+        this.value = value;
+        this.success = success;
+        this.length = length;
+        this.pos = pos;
+        this.errorMsg = errorMsg;
+    }
+
+    /**
+     * @param value the value
+     * @param length result length
+     * @param pos the position
+     * @param <T> the value type
+     * @return a success TypedResult
+     */
+    public static <T> TypedResult<T> success(T value, int length, long pos) {
+        return new TypedResult<>(value, true, length, pos, null);
+    }
+
+    /**
+     * @param pos the position
+     * @param errorMsg error message
+     * @param <T> the value type
+     * @return a failed TypedResult
+     */
+    public static <T> TypedResult<T> failure(long pos, String errorMsg) {
+        return new TypedResult<>(null, false, 0, pos, errorMsg);
+    }
+
+    /**
+     * @return if is success
+     */
+    public boolean isSuccess() {
+        return this.success;
+    }
+
+    /**
+     * @return if is error
+     */
+    public boolean isError() {
+        return !this.success;
+    }
+
+    /**
+     * @return the value
+     */
+    public T get() {
+        if (!this.success) {
+            throw new IllegalStateException("no value: " + this.errorMsg);
+        }
+        return this.value;
+    }
+}
@@ -0,0 +1,34 @@
+package io.github.janlely.jparser;
+
+/**
+ * A reference to a TypedParser that is defined later, see {@link Rule}.
+ * @param <T> the value type
+ */
+public class TypedRule<T> extends TypedParser<T> {
+
+    /**
+     * the referenced TypedParser
+     */
+    private TypedParser<T> parser;
+
+    /**
+     * Define this rule.
+     * @param parser the referenced TypedParser
+     * @return this
+     */
+    public TypedRule<T> set(TypedParser<T> parser) {
+        if (this.parser != null) {
+            throw new IllegalStateException("rule is already defined");
+        }
+        this.parser = parser;
+        return this;
+    }
+
+    @Override
+    protected Object run(IBuffer buffer) {
+        if (this.parser == null) {
+            throw new IllegalStateException("rule is not defined");
+        }
+        return this.parser.run(buffer);
+    }
+}
@@ -1,31 +1,43 @@
 package io.github.janlely.jparser.comb;
 
 import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.ParseContext;
 import io.github.janlely.jparser.Parser;
 import io.github.janlely.jparser.Result;
-import io.github.janlely.jparser.parsers.TextParsers;
-import lombok.Builder;
-import lombok.Data;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 /**
- * Parser with back-tracing enabled
+ * Parser with back-tracing enabled.
+ * It must be configured before it is shared, the state of a parse is kept by each call.
  */
 public class BacktraceParser extends Parser {
 
-    private boolean greedy;
-    private List<Supplier<Parser>> parsers;
-    private int head;
+    private final boolean greedy;
+    private final List<Supplier<Parser>> parsers;
+    private boolean memoize = true;
 
     /**
-     * Try executing when a better result is found in greedy mode.
+     * Try executing when the result is found, null if there is none.
      */
-    private Runnable runnable;
+    private Consumer<IBuffer> runnable;
     public void onResultFound(Runnable runnable) {
+        this.runnable = __ -> runnable.run();
+    }
+
+    /**
+     * Before it is executed, the Parsers are run again along the cuts of the result, in order,
+     * so that their side effects are those of the result rather than of the last cut tried.
+     * @param runnable executed with the input when the result is found,
+     *                 to keep state in the {@link ParseContext} of the input
+     */
+    public void onResultFound(Consumer<IBuffer> runnable) {
         this.runnable = runnable;
     }
 
@@ -35,10 +47,8 @@ public class BacktraceParser extends Parser {
      */
     public BacktraceParser(boolean greedy, Supplier<Parser> ...parsers) {
         this.greedy = greedy;
-        this.parsers = new LinkedList<>();
+        this.parsers = new ArrayList<>();
         Collections.addAll(this.parsers, parsers);
-        this.runnable = () -> {};
-        this.head = 0;
     }
 
     /**
@@ -48,11 +58,9 @@ public class BacktraceParser extends Parser {
      */
     public BacktraceParser(boolean greedy, Parser head, Supplier<Parser> ...tail) {
         this.greedy = greedy;
-        this.parsers = new LinkedList<>();
+        this.parsers = new ArrayList<>();
         this.parsers.add(() -> head);
         Collections.addAll(this.parsers, tail);
-        this.runnable = () -> {};
-        this.head = 0;
     }
 
 
@@ -62,10 +70,8 @@ public class BacktraceParser extends Parser {
      */
     public BacktraceParser(boolean greedy, List<Supplier<Parser>> parsers) {
         this.greedy = greedy;
-        this.parsers = new LinkedList<>();
+        this.parsers = new ArrayList<>();
         this.parsers.addAll(parsers);
-        this.runnable = () -> {};
-        this.head = 0;
     }
 
     /**
@@ -75,68 +81,205 @@ public class BacktraceParser extends Parser {
      */
     public BacktraceParser(boolean greedy, Parser head, List<Supplier<Parser>> tail) {
         this.greedy = greedy;
-        this.parsers = new LinkedList<>();
+        this.parsers = new ArrayList<>();
         this.parsers.add(() -> head);
         this.parsers.addAll(tail);
-        this.runnable = () -> {};
-        this.head = 0;
+    }
+
+    /**
+     * @param memoize if the outcome of the remaining Parsers at a position is cached during a parse.
+     *                Disable it when a Parser depends on state changed by the others, such as a back-reference.
+     * @return this
+     */
+    public BacktraceParser memoize(boolean memoize) {
+        this.memoize = memoize;
+        return this;
     }
 
     @Override
     public Result parse(IBuffer buffer) {
-        if (head == this.parsers.size() - 1) {
-            return this.parsers.get(head++).get().runParser(buffer);
+        Parser[] elements = new Parser[this.parsers.size()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = this.parsers.get(i).get();
+        }
+        Search search = new Search(buffer, elements);
+        Result result = search.run(0, 0);
+        if (result == null) {
+            return Result.fail(buffer);
+        }
+        if (this.runnable != null) {
+            search.replay();
+            this.runnable.accept(buffer);
         }
-        if (head == this.parsers.size()) {
-            head = 0;
+        buffer.forward(result.getLength());
+        return result;
+    }
+
+    /**
+     * State of one parse. Each Parser but the last must match exactly up to a cut, the cuts
+     * are enumerated by {@link Parser#candidates(IBuffer)} if the Parser knows them, otherwise
+     * by trying the Parser on growing prefixes until it no longer looks at the cut.
+     * The remaining Parsers resume from each cut, without splitting the buffer.
+     */
+    private class Search {
+        private final IBuffer buffer;
+        private final Parser[] elements;
+        private final CutBuffer view;
+        private final ParseContext context;
+        /**
+         * outcome of the Parsers from index at offset, keyed by offset * elements.length + index
+         */
+        private final Map<Long, Result> memo;
+        /**
+         * the cut chosen by the Parser at index at offset, with the same keys
+         */
+        private final Map<Long, Integer> choices;
+
+        Search(IBuffer buffer, Parser[] elements) {
+            this.buffer = buffer;
+            this.elements = elements;
+            this.view = new CutBuffer(buffer);
+            this.context = buffer.getContext();
+            this.memo = memoize ? new HashMap<>() : null;
+            this.choices = runnable == null ? null : new HashMap<>();
         }
-        LoopObject lp = LoopObject.builder()
-                .idx(0)
-                .best(Result.broken())
-                .build();
-        Parser headParser = this.parsers.get(head++).get().chain(() -> TextParsers.eof());
-        int thisHead = head;
-        while(lp.idx <= buffer.remaining()) {
-            IBuffer[] tmp = buffer.splitAt(lp.idx);
-            IBuffer left = tmp[0];
-            IBuffer right = tmp[1];
-            Result headResult = headParser.runParser(left);
-            if (headResult.isError()) {
-                lp.forward();
-                continue;
+
+        /**
+         * @param index index of the first Parser
+         * @param offset offset from the cursor
+         * @return the result of the Parsers from index, null if failed
+         */
+        Result run(int index, int offset) {
+            if (index == this.elements.length - 1) {
+                return last(offset);
+            }
+            Long key = (long) offset * this.elements.length + index;
+            if (this.memo != null && this.memo.containsKey(key)) {
+                return this.memo.get(key);
             }
-            head = thisHead;
-            Result tailResult = runParser(right);
-            if (tailResult.isError()) {
-                lp.forward();
-                continue;
+            this.buffer.forward(offset);
+            int[] cuts = this.elements[index].candidates(this.buffer);
+            this.buffer.backward(offset);
+            Result result = cuts != null ? byCandidates(index, offset, cuts) : byTrials(index, offset);
+            if (this.memo != null) {
+                this.memo.put(key, result);
             }
-            if (!greedy) {
-                buffer.forward(headResult.getLength() + tailResult.getLength());
-                return merge(headResult, tailResult);
+            return result;
+        }
+
+        /**
+         * @param len the cut chosen by the Parser at index at offset
+         */
+        private void choose(int index, int offset, int len) {
+            if (this.choices != null) {
+                this.choices.put((long) offset * this.elements.length + index, len);
             }
-            if (!lp.isSuccess()) {
-                //the outermost result
-                if (thisHead == 1) {
-                    runnable.run();
+        }
+
+        /**
+         * Run the Parsers again along the chosen cuts, from the cursor.
+         */
+        void replay() {
+            int offset = 0;
+            for (int i = 0; i < this.elements.length - 1; i++) {
+                int len = this.choices.get((long) offset * this.elements.length + i);
+                cut(i, offset, len);
+                offset += len;
+            }
+            last(offset);
+        }
+
+        private Result last(int offset) {
+            this.buffer.forward(offset);
+            Result result = this.elements[this.elements.length - 1].runParser(this.buffer);
+            this.buffer.backward(offset + (result.isSuccess() ? result.getLength() : 0));
+            return result.isSuccess() ? result : null;
+        }
+
+        /**
+         * @return the result of the Parser at index if it matches exactly len bytes, otherwise null
+         */
+        private Result cut(int index, int offset, int len) {
+            Result result = this.elements[index].runParser(this.view.reset(offset, len));
+            return result.isSuccess() && result.getLength() == len ? result : null;
+        }
+
+        private Result byCandidates(int index, int offset, int[] cuts) {
+            int bestCut = -1;
+            Result bestHead = null;
+            Result bestTail = null;
+            for (int len : cuts) {
+                if (!this.context.backtrack()) {
+                    return null;
+                }
+                // without memoization the Parsers may depend on each other's side effects,
+                // so the head is run before the tail as the trials do
+                Result head = memoize ? null : cut(index, offset, len);
+                if (!memoize && head == null) {
+                    continue;
+                }
+                Result tail = run(index + 1, offset + len);
+                if (tail == null) {
+                    continue;
                 }
-                lp.setBest(merge(headResult, tailResult));
+                if (!greedy) {
+                    Result result = head != null ? BacktraceParser.merge(head, tail) : merge(index, offset, len, tail);
+                    if (result != null) {
+                        choose(index, offset, len);
+                        return result;
+                    }
+                    continue;
+                }
+                if (bestTail == null || bestCut + bestTail.getLength() < len + tail.getLength()) {
+                    bestCut = len;
+                    bestHead = head;
+                    bestTail = tail;
+                }
+            }
+            if (bestTail == null) {
+                return null;
             }
-            if (lp.getLen() < headResult.getLength() + tailResult.getLength()) {
-                //the outermost result
-                if (thisHead == 1) {
-                    runnable.run();
+            choose(index, offset, bestCut);
+            return bestHead != null ? BacktraceParser.merge(bestHead, bestTail) : merge(index, offset, bestCut, bestTail);
+        }
+
+        private Result merge(int index, int offset, int len, Result tail) {
+            Result head = cut(index, offset, len);
+            return head == null ? null : BacktraceParser.merge(head, tail);
+        }
+
+        private Result byTrials(int index, int offset) {
+            Result best = null;
+            int bestCut = -1;
+            int remaining = this.buffer.remaining() - offset;
+            for (int len = 0; len <= remaining; len++) {
+                if (!this.context.backtrack()) {
+                    return null;
+                }
+                Result head = cut(index, offset, len);
+                boolean longer = this.view.sawEnd();
+                Result tail = head == null ? null : run(index + 1, offset + len);
+                if (tail != null) {
+                    if (!greedy) {
+                        choose(index, offset, len);
+                        return BacktraceParser.merge(head, tail);
+                    }
+                    if (best == null || best.getLength() < len + tail.getLength()) {
+                        best = BacktraceParser.merge(head, tail);
+                        bestCut = len;
+                    }
                 }
-                lp.setBest(merge(headResult, tailResult));
+                if (!longer) {
+                    break;
+                }
+            }
+            if (best != null) {
+                choose(index, offset, bestCut);
             }
-            lp.forward();
+            return best;
         }
-        buffer.forward(lp.getLen());
-        head = this.parsers.size();
-        return lp.best;
     }
 
-
     /**
      * merge two results
      * @param left The left result
@@ -151,42 +294,4 @@ public class BacktraceParser extends Parser {
         result.incLen(right.getLength());
         return result;
     }
-
-    /**
-     * Object when looping
-     */
-    @Data
-    @Builder
-    public static class LoopObject {
-
-        /**
-         * index
-         */
-        private int idx;
-        /**
-         * the best result
-         */
-        private Result best;
-
-        /**
-         * move forward
-         */
-        public void forward() {
-            idx++;
-        }
-
-        /**
-         * @return if is success
-         */
-        public boolean isSuccess() {
-            return best.isSuccess();
-        }
-
-        /**
-         * @return the length of result
-         */
-        public int getLen() {
-            return best.getLength();
-        }
-    }
 }
@@ -0,0 +1,123 @@
+package io.github.janlely.jparser.comb;
+
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.ParseContext;
+import io.github.janlely.jparser.util.Buffer;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * A view of a buffer that ends at a cut, used to try a Parser on a prefix of the input
+ * without copying it. The view remembers if the Parser looked at the cut: if it did not,
+ * a longer cut would give the same outcome.
+ */
+class CutBuffer implements IBuffer {
+
+    private final IBuffer base;
+    /**
+     * start of the view, as offset from the cursor of base
+     */
+    private int from;
+    /**
+     * length of the view
+     */
+    private int limit;
+    private int cursor;
+    private boolean sawEnd;
+    private ParseContext context;
+
+    CutBuffer(IBuffer base) {
+        this.base = base;
+    }
+
+    /**
+     * @param from start of the view, as offset from the cursor of base
+     * @param limit length of the view
+     * @return this
+     */
+    CutBuffer reset(int from, int limit) {
+        this.from = from;
+        this.limit = limit;
+        this.cursor = 0;
+        this.sawEnd = false;
+        if (this.context != null) {
+            // results memoized for the previous cut may have looked at its end
+            this.context.clearMemos();
+        }
+        return this;
+    }
+
+    /**
+     * @return if the cut was looked at since the last reset
+     */
+    boolean sawEnd() {
+        return this.sawEnd;
+    }
+
+    @Override
+    public void backward(int n) {
+        this.cursor -= n;
+    }
+
+    @Override
+    public int remaining() {
+        this.sawEnd = true;
+        return this.limit - this.cursor;
+    }
+
+    @Override
+    public Optional<Byte> head() {
+        int b = peek(0);
+        return b < 0 ? Optional.empty() : Optional.of((byte) b);
+    }
+
+    @Override
+    public byte[] headN(int n) {
+        int available = this.limit - this.cursor;
+        if (n > available) {
+            this.sawEnd = true;
+            n = Math.max(available, 0);
+        }
+        int start = this.from + this.cursor;
+        return Arrays.copyOfRange(this.base.headN(start + n), start, start + n);
+    }
+
+    @Override
+    public int peek(int offset) {
+        if (this.cursor + offset >= this.limit) {
+            this.sawEnd = true;
+            return -1;
+        }
+        return this.base.peek(this.from + this.cursor + offset);
+    }
+
+    @Override
+    public void forward(int n) {
+        this.cursor += n;
+    }
+
+    @Override
+    public long getPos() {
+        return this.base.getPos() + this.from + this.cursor;
+    }
+
+    @Override
+    public IBuffer[] splitAt(int idx) {
+        return Buffer.builder().data(remainContent()).build().splitAt(idx);
+    }
+
+    @Override
+    public byte[] remainContent() {
+        this.sawEnd = true;
+        return headN(this.limit - this.cursor);
+    }
+
+    @Override
+    public ParseContext getContext() {
+        if (this.context == null) {
+            this.context = this.base.getContext().derive();
+        }
+        return this.context;
+    }
+}
@@ -1,14 +1,27 @@
 package io.github.janlely.jparser.impl.csv;
 
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.ParallelParser;
 import io.github.janlely.jparser.Parser;
+import io.github.janlely.jparser.Result;
 import io.github.janlely.jparser.parsers.TextParsers;
 import io.github.janlely.jparser.util.Mapper;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
 /**
  * CSV Parser
  */
 public class CsvParser {
 
+    /**
+     * default number of bytes scanned for a line end by one task of {@link #parseParallel(IBuffer)}
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
     /**
      * @return CSV file Parser
      */
@@ -16,6 +29,75 @@ public class CsvParser {
         return lineParser().sepBy(TextParsers.one('\n').ignore());
     }
 
+    /**
+     * Parse CSV lines one at a time, a line is not retained once it is handed out.
+     * @param buffer the input
+     * @return the fields of each line
+     */
+    public static Iterator<List> lines(IBuffer buffer) {
+        return lineParser().iterator(buffer, TextParsers.one('\n'));
+    }
+
+    /**
+     * Parse CSV lines and hand each line to the consumer as soon as it is parsed.
+     * @param buffer the input
+     * @param consumer receives the fields of each line
+     * @return number of lines
+     */
+    public static long forEachLine(IBuffer buffer, Consumer<List> consumer) {
+        return lineParser().forEach(buffer, TextParsers.one('\n'), consumer);
+    }
+
+    /**
+     * Parse CSV lines on all processors, see {@link #parseParallel(IBuffer, int, int)}.
+     * @param buffer the input, a {@link io.github.janlely.jparser.util.MappedFileBuffer} for a large file
+     * @return the fields of each line
+     */
+    public static List<List> parseParallel(IBuffer buffer) {
+        return parseParallel(buffer, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Parse CSV lines in parallel. The input is split into pieces of whole lines, a newline
+     * in a quoted field does not end a line, the pieces are parsed by a {@link ParallelParser}
+     * and their lines are joined in order. Like {@link #lines(IBuffer)}, the lines end at the
+     * first line that can not be parsed.
+     * @param buffer the input
+     * @param parallelism number of threads
+     * @param chunkSize bytes scanned for a line end by one task, a piece is about this size
+     * @return the fields of each line
+     */
+    public static List<List> parseParallel(IBuffer buffer, int parallelism, int chunkSize) {
+        List<IBuffer> pieces = RecordSplitter.split(buffer, chunkSize);
+        List<Result> results;
+        try (ParallelParser parallel = ParallelParser.builder()
+                .parser(rowsParser())
+                .parallelism(parallelism)
+                .chunkSize(1)
+                .build()) {
+            results = parallel.parseAll(pieces);
+        }
+        List<List> lines = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            if (result.isError()) {
+                break;
+            }
+            lines.addAll(result.getResult());
+            if (result.getLength() < pieces.get(i).remaining()) {
+                break;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @return Parser of CSV lines, the result holds the fields of each line as a list
+     */
+    private static Parser rowsParser() {
+        return lineParser().map(fields -> fields).sepBy(TextParsers.one('\n').ignore());
+    }
+
     /**
      * @return CSV line Parser
      */
@@ -27,19 +109,20 @@ public class CsvParser {
      * @return CSV field Parser
      */
     public static Parser field() {
-        return fieldCase1().or(() -> fieldCase2());
+        return fieldCase1().or(fieldCase2());
     }
 
     /**
      * @return field case 1
      */
     public static Parser fieldCase1() {
-        Parser escapeParser = TextParsers.one('"').ignore().chain(() -> TextParsers.one('"'));
+        Parser escapeParser = TextParsers.one('"').ignore().chain(TextParsers.one('"'));
         return TextParsers.one('"').ignore()
-                .chain(() -> escapeParser
-                        .or(() -> TextParsers.satisfy(c -> !Character.isISOControl(c) && c != '"'))
+                .chain(escapeParser
+                        .or(TextParsers.satisfy(c -> c != '"'
+                                && (c == '\n' || c == '\r' || !Character.isISOControl(c))))
                         .many().map(Mapper.toStr()))
-                .chain(() -> TextParsers.one('"').ignore());
+                .chain(TextParsers.one('"').ignore());
     }
 
     /**
@@ -0,0 +1,175 @@
+package io.github.janlely.jparser.impl.csv;
+
+import io.github.janlely.jparser.IBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Split a CSV input into pieces of whole records, so the pieces can be parsed independently.
+ * A newline ends a record unless it is in a quoted field. As in {@link CsvParser#field()}, a field
+ * is quoted only if it starts with a quote, a quote inside an unquoted field is a plain character.
+ * The input is cut into chunks, in a first pass each chunk is scanned in parallel from every state
+ * the scanner may be in at its start, since that is not known yet: at the start of a field, in an
+ * unquoted field, in a quoted field, or after a quote in a quoted field. For each state the scan
+ * keeps the first newline that ends a record and the state at the end of the chunk. In a second
+ * pass the states are chained from the start of the input, which picks the newline that really
+ * ends a record in each chunk.
+ */
+final class RecordSplitter {
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int STATES = 4;
+
+    /**
+     * next state by state * 4 + kind of byte: other, quote, comma, newline
+     */
+    private static final int[] NEXT = {
+            UNQUOTED, QUOTED, FIELD_START, FIELD_START,
+            UNQUOTED, UNQUOTED, FIELD_START, FIELD_START,
+            QUOTED, QUOTE_IN_QUOTED, QUOTED, QUOTED,
+            UNQUOTED, QUOTED, FIELD_START, FIELD_START
+    };
+
+    private RecordSplitter() {
+    }
+
+    /**
+     * the record ends of a chunk for each state at its start
+     */
+    private static final class Scan {
+        /**
+         * absolute offset of the chunk
+         */
+        private final long offset;
+        /**
+         * state at the end of the chunk, by state at its start
+         */
+        private final int[] end = new int[STATES];
+        /**
+         * offset in the chunk of the first newline that ends a record, -1 if none, by state at its start
+         */
+        private final int[] newline = new int[STATES];
+
+        private Scan(long offset) {
+            this.offset = offset;
+            Arrays.fill(this.newline, -1);
+        }
+    }
+
+    /**
+     * @param buffer the input, from its cursor
+     * @param chunkSize size of the chunks that are scanned, a piece holds whole records
+     *                  and starts in a different chunk than the previous piece
+     * @return the pieces, in order, without the newlines between them
+     */
+    static List<IBuffer> split(IBuffer buffer, int chunkSize) {
+        List<IBuffer> chunks = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        IBuffer tail = buffer;
+        long offset = 0;
+        while (tail.remaining() > chunkSize) {
+            IBuffer[] parts = tail.splitAt(chunkSize);
+            chunks.add(parts[0]);
+            offsets.add(offset);
+            offset += chunkSize;
+            tail = parts[1];
+        }
+        chunks.add(tail);
+        offsets.add(offset);
+
+        List<Scan> scans = IntStream.range(0, chunks.size()).parallel()
+                .mapToObj(i -> scan(chunks.get(i), offsets.get(i)))
+                .collect(Collectors.toList());
+
+        List<IBuffer> pieces = new ArrayList<>();
+        IBuffer rest = buffer;
+        long restOffset = 0;
+        int state = FIELD_START;
+        for (int i = 0; i < scans.size(); i++) {
+            Scan scan = scans.get(i);
+            int newline = scan.newline[state];
+            // the first piece starts in the first chunk anyway
+            if (i > 0 && newline >= 0) {
+                long length = scan.offset + newline - restOffset;
+                if (length > Integer.MAX_VALUE) {
+                    throw new RuntimeException("CSV record at offset " + restOffset
+                            + " is longer than 2GB, the input may have an unbalanced quote");
+                }
+                IBuffer[] parts = rest.splitAt((int) length);
+                pieces.add(parts[0]);
+                rest = parts[1].splitAt(1)[1];
+                restOffset = scan.offset + newline + 1;
+            }
+            state = scan.end[state];
+        }
+        pieces.add(rest);
+        return pieces;
+    }
+
+    /**
+     * @param b a byte
+     * @return kind of the byte: 0 other, 1 quote, 2 comma, 3 newline
+     */
+    private static int kind(byte b) {
+        switch (b) {
+            case '"':
+                return 1;
+            case ',':
+                return 2;
+            case '\n':
+                return 3;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * @param chunk the chunk
+     * @param offset absolute offset of the chunk
+     * @return the record ends of the chunk for each state at its start
+     */
+    private static Scan scan(IBuffer chunk, long offset) {
+        Scan scan = new Scan(offset);
+        ByteBuffer bytes = chunk.slice(0, chunk.remaining());
+        int[] states = {FIELD_START, UNQUOTED, QUOTED, QUOTE_IN_QUOTED};
+        int length = bytes.limit();
+        int i = 0;
+        // the scans from the different states usually agree after a few fields
+        while (i < length && !(states[0] == states[1] && states[1] == states[2] && states[2] == states[3])) {
+            int kind = kind(bytes.get(i));
+            for (int s = 0; s < STATES; s++) {
+                if (kind == 3 && states[s] != QUOTED && scan.newline[s] < 0) {
+                    scan.newline[s] = i;
+                }
+                states[s] = NEXT[states[s] * 4 + kind];
+            }
+            i++;
+        }
+        if (i == length) {
+            System.arraycopy(states, 0, scan.end, 0, STATES);
+            return scan;
+        }
+        int state = states[0];
+        for (; i < length; i++) {
+            int kind = kind(bytes.get(i));
+            if (kind == 3 && state != QUOTED) {
+                for (int s = 0; s < STATES; s++) {
+                    if (scan.newline[s] < 0) {
+                        scan.newline[s] = i;
+                    }
+                }
+            }
+            state = NEXT[state * 4 + kind];
+        }
+        Arrays.fill(scan.end, state);
+        return scan;
+    }
+}
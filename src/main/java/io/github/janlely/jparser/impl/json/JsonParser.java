@@ -1,6 +1,9 @@
 package io.github.janlely.jparser.impl.json;
 
 import io.github.janlely.jparser.Parser;
+import io.github.janlely.jparser.Rule;
+import io.github.janlely.jparser.parsers.NumberMode;
+import io.github.janlely.jparser.parsers.NumberParsers;
 import io.github.janlely.jparser.parsers.TextParsers;
 import io.github.janlely.jparser.util.Mapper;
 
@@ -16,21 +19,50 @@ public class JsonParser {
      * @return The final Parser
      */
     public static Parser parser() {
-        return jsonParser().chain(() -> TextParsers.eof());
+        return parser(NumberMode.DOUBLE);
     }
 
     /**
-     * jsonParser
+     * jsonParser + eof
+     * @param mode how numbers are represented
+     * @return The final Parser
+     */
+    public static Parser parser(NumberMode mode) {
+        return jsonParser(mode).chain(TextParsers.eof());
+    }
+
+    /**
+     * jsonParser, the recursive grammar is built once
      * @return json value Parser
      */
     public static Parser jsonParser() {
-        return stringParser()
-                .or(() -> objectParser().trim(true))
-                .or(() -> arrayParser().trim(true))
-                .or(() -> nullParser().trim(true))
-                .or(() -> boolParser().trim(true))
-                .or(() -> numberParser().trim(true))
-                .trim(true);
+        return jsonParser(NumberMode.DOUBLE);
+    }
+
+    /**
+     * jsonParser, the recursive grammar is built once
+     * @param mode how numbers are represented
+     * @return json value Parser
+     */
+    public static Parser jsonParser(NumberMode mode) {
+        Rule value = Parser.ref();
+        return value.set(jsonParser(value, mode));
+    }
+
+    /**
+     * @param value the json value Parser, to parse nested values
+     * @param mode how numbers are represented
+     * @return json value Parser
+     */
+    private static Parser jsonParser(Parser value, NumberMode mode) {
+        return Parser.choose(
+                stringValueParser(),
+                objectParser(value),
+                arrayParser(value),
+                nullParser(),
+                boolParser(),
+                numberParser(mode)
+        ).trim(true);
     }
 
     /**
@@ -38,9 +70,17 @@ public class JsonParser {
      * @return json array Parser
      */
     public static Parser arrayParser() {
+        return arrayParser(jsonParser());
+    }
+
+    /**
+     * @param value the json value Parser
+     * @return json array Parser
+     */
+    private static Parser arrayParser(Parser value) {
         return TextParsers.one('[').ignore()
-                .chain(() -> jsonParser().sepBy(TextParsers.one(',').ignore()))
-                .chain(() -> TextParsers.one(']').ignore())
+                .chain(value.sepBy(TextParsers.one(',').ignore()))
+                .chain(TextParsers.one(']').ignore())
                 .map(ary -> JsonValue.builder()
                         .type(JsonType.ARRAY)
                         .value(new JsonArray().addAll(ary))
@@ -52,9 +92,17 @@ public class JsonParser {
      * @return json object Parser
      */
     public static Parser objectParser() {
+        return objectParser(jsonParser());
+    }
+
+    /**
+     * @param value the json value Parser
+     * @return json object Parser
+     */
+    private static Parser objectParser(Parser value) {
         return TextParsers.one('{').ignore()
-                .chain(() -> membersParser())
-                .chain(() -> TextParsers.one('}').ignore());
+                .chain(membersParser(value))
+                .chain(TextParsers.one('}').ignore());
     }
 
     /**
@@ -62,7 +110,15 @@ public class JsonParser {
      * @return json members Parser
      */
     public static Parser membersParser() {
-        return memberParser().sepBy(TextParsers.one(',').ignore())
+        return membersParser(jsonParser());
+    }
+
+    /**
+     * @param value the json value Parser
+     * @return json members Parser
+     */
+    private static Parser membersParser(Parser value) {
+        return memberParser(value).sepBy(TextParsers.one(',').ignore())
                 .map(mbs -> JsonValue.builder()
                         .type(JsonType.OBJECT)
                         .value(new JsonObject().addAll(mbs))
@@ -74,9 +130,17 @@ public class JsonParser {
      * @return json member Parser
      */
     public static Parser memberParser() {
+        return memberParser(jsonParser());
+    }
+
+    /**
+     * @param value the json value Parser
+     * @return json member Parser
+     */
+    private static Parser memberParser(Parser value) {
         return keyParser().trim(true)
-                .chain(() -> TextParsers.one(':').ignore())
-                .chain(() -> jsonParser())
+                .chain(TextParsers.one(':').ignore())
+                .chain(value)
                 .map((List kv) -> JsonMember.builder()
                         .key((String) kv.get(0))
                         .value((JsonValue) kv.get(1))
@@ -89,8 +153,8 @@ public class JsonParser {
      */
     public static Parser keyParser() {
         return TextParsers.one('"').ignore()
-                .chain(() -> charParser().many().map(Mapper.toStr()))
-                .chain(() -> TextParsers.one('"').ignore());
+                .chain(charParser().many().map(Mapper.toStr()))
+                .chain(TextParsers.one('"').ignore());
     }
 
     /**
@@ -98,20 +162,26 @@ public class JsonParser {
      */
     public static Parser charParser() {
         Parser escape = TextParsers.one('\\').ignore()
-                .chain(() -> TextParsers.one('"')
-                        .or(() -> TextParsers.one('\\')));
-        return escape.or(() -> TextParsers.satisfy(c -> c != '"'));
+                .chain(TextParsers.one('"')
+                        .or(TextParsers.one('\\')));
+        return escape.or(TextParsers.satisfy(c -> c != '"'));
     }
 
     /**
      * @return key Parser composed with double quote
      */
     public static Parser stringParser() {
+        return stringValueParser().trim(true);
+    }
+
+    /**
+     * @return json string Parser, without trimming
+     */
+    private static Parser stringValueParser() {
         return keyParser().map(s -> JsonValue.builder()
-                        .type(JsonType.STRING)
-                        .value(s.get(0))
-                        .build())
-                .trim(true);
+                .type(JsonType.STRING)
+                .value(s.get(0))
+                .build());
     }
 
     /**
@@ -131,12 +201,19 @@ public class JsonParser {
      * @return json number Parser
      */
     public static Parser numberParser() {
-        return TextParsers.satisfy(c -> Character.isDigit(c) || c == '-' || c == '.' || c == 'e')
-                .some()
-                .map(Mapper.toStr())
-                .map(ss -> JsonValue.builder()
+        return numberParser(NumberMode.DOUBLE);
+    }
+
+    /**
+     * parse json number
+     * @param mode how the number is represented
+     * @return json number Parser
+     */
+    public static Parser numberParser(NumberMode mode) {
+        return NumberParsers.anyNumber(mode)
+                .map(ns -> JsonValue.builder()
                         .type(JsonType.NUMBER)
-                        .value(Double.parseDouble((String) ss.get(0)))
+                        .value(ns.get(0))
                         .build());
     }
 
@@ -155,7 +232,7 @@ public class JsonParser {
                         .type(JsonType.BOOL)
                         .value(false)
                         .build());
-        return trueValue.or(() -> falseValue);
+        return trueValue.or(falseValue);
     }
 
 }
@@ -4,33 +4,39 @@ import io.github.janlely.jparser.IBuffer;
 import io.github.janlely.jparser.Parser;
 import io.github.janlely.jparser.Result;
 
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 /**
- * Parser with aop enabled
+ * Parser with aop enabled, the advices keep their state in the {@link io.github.janlely.jparser.ParseContext}
+ * of the input
  */
 public class AopParser extends Parser {
 
-    private Parser parser;
-    private Runnable before;
-    private Consumer<Result> after;
+    private final Parser parser;
+    private final Consumer<IBuffer> before;
+    private final BiConsumer<IBuffer, Result> after;
 
     /**
      * @param parser The inner Parser
-     * @param before What you want to do before parsing
-     * @param after What you want to do before parsing
+     * @param before What you want to do before parsing, with the input
+     * @param after What you want to do after parsing, with the input and the result
      */
-    public AopParser(Parser parser, Runnable before, Consumer<Result> after) {
+    public AopParser(Parser parser, Consumer<IBuffer> before, BiConsumer<IBuffer, Result> after) {
         this.parser = parser;
         this.before = before;
         this.after = after;
     }
     @Override
     public Result parse(IBuffer buffer) {
-        before.run();
+        before.accept(buffer);
         Result result = parser.runParser(buffer);
-        after.accept(result);
+        after.accept(buffer, result);
         return result;
     }
 
+    @Override
+    public int[] candidates(IBuffer buffer) {
+        return parser.candidates(buffer);
+    }
 }
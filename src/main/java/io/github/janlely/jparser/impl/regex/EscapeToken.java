@@ -1,10 +1,8 @@
 package io.github.janlely.jparser.impl.regex;
 
-import io.github.janlely.jparser.util.F;
+import io.github.janlely.jparser.util.CharClass;
 import lombok.Getter;
 
-import java.util.function.Predicate;
-
 
 /**
  * escape token
@@ -14,74 +12,74 @@ public enum EscapeToken {
     /**
      * \w
      */
-    WORD((F.any(Character::isLetterOrDigit, ch -> ch == '_'))), //\w [A-z0-9_]
+    WORD(CharClass.of(Character::isLetterOrDigit).union(CharClass.of('_'))), //\w [A-z0-9_]
     /**
      * \W
      */
-    NON_WORD(F.all(F.not(Character::isISOControl), F.not(F.any(Character::isLetterOrDigit, ch -> ch == '_')))),//\W [^A-z0-9]
+    NON_WORD(CharClass.union(CharClass.of(Character::isISOControl), WORD.predicate).negate()),//\W [^A-z0-9]
     /**
      * \d
      */
-    DIGIT(Character::isDigit), //\d [0-9]
+    DIGIT(CharClass.of(Character::isDigit)), //\d [0-9]
     /**
      * \D
      */
-    NON_DIGIT(F.all(F.not(Character::isISOControl), F.not(Character::isDigit))), //\D [^0-9]
+    NON_DIGIT(CharClass.union(CharClass.of(Character::isISOControl), DIGIT.predicate).negate()), //\D [^0-9]
     /**
      * \s
      */
-    WHITE(Character::isWhitespace), //\s [ \t\r\n\v\f]
+    WHITE(CharClass.of(Character::isWhitespace)), //\s [ \t\r\n\v\f]
     /**
      * \S
      */
-    NON_WHITE(F.all(F.not(Character::isISOControl), F.not(Character::isWhitespace))), //\S [^ \t\r\n\v\f]
+    NON_WHITE(CharClass.union(CharClass.of(Character::isISOControl), WHITE.predicate).negate()), //\S [^ \t\r\n\v\f]
     /**
      * \.
      */
-    DOT(ch -> ch == '.'), // \. .
+    DOT(CharClass.of('.')), // \. .
     /**
      * \+
      */
-    PLUS(ch -> ch == '+'), // \+ +
+    PLUS(CharClass.of('+')), // \+ +
     /**
      * \*
      */
-    STAR(ch -> ch == '*'), // \* *
+    STAR(CharClass.of('*')), // \* *
     /**
      * \?
      */
-    QUESTION_MARK(ch -> ch == '?'), //\? ?
+    QUESTION_MARK(CharClass.of('?')), //\? ?
     /**
      * \(
      */
-    LEFT_BRACKET(ch -> ch == '('), // \(
+    LEFT_BRACKET(CharClass.of('(')), // \(
     /**
      * \)
      */
-    RIGHT_BRACKET(ch -> ch == ')'), // \)
+    RIGHT_BRACKET(CharClass.of(')')), // \)
     /**
      * \[
      */
-    LEFT_SQUARE_BRACKET(ch -> ch == '['), // \[
+    LEFT_SQUARE_BRACKET(CharClass.of('[')), // \[
     /**
      * \]
      */
-    RIGHT_SQUARE_BRACKET(ch -> ch == ']'), // \]
+    RIGHT_SQUARE_BRACKET(CharClass.of(']')), // \]
     /**
      * \\
      */
-    BACKSLASH(ch -> ch == '\\'); // \\
+    BACKSLASH(CharClass.of('\\')); // \\
 
     /**
      * the predicate
      */
     @Getter
-    private Predicate<Character> predicate;
+    private CharClass predicate;
 
     /**
      * @param predicate the predicate
      */
-    EscapeToken(Predicate<Character> predicate) {
+    EscapeToken(CharClass predicate) {
         this.predicate = predicate;
     }
 }
@@ -33,6 +33,10 @@ public class RParser {
      * function to apply before parse
      */
     private Function<Parser, Parser> func;
+    /**
+     * if it is or contains a back-reference
+     */
+    private boolean quoted;
 
 
     /**
@@ -1,11 +1,15 @@
 package io.github.janlely.jparser.impl.regex;
 
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.ParseBudget;
 import io.github.janlely.jparser.Parser;
 import io.github.janlely.jparser.Result;
+import io.github.janlely.jparser.Rule;
 import io.github.janlely.jparser.comb.BacktraceParser;
 import io.github.janlely.jparser.parsers.NumberParsers;
 import io.github.janlely.jparser.parsers.TextParsers;
 import io.github.janlely.jparser.util.Buffer;
+import io.github.janlely.jparser.util.CharClass;
 import io.github.janlely.jparser.util.F;
 import io.github.janlely.jparser.util.Mapper;
 
@@ -14,29 +18,43 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
- * the regex Parser
+ * the regex Parser.
+ * Once compiled it can be shared by threads, the groups of a match are kept in the
+ * {@link io.github.janlely.jparser.ParseContext} of its input.
  */
 public class RegexParser {
 
     /**
-     * Auto-incremented group ID.
+     * escaped characters
      */
-    private AtomicInteger groupId;
-    /**
-     * group result cache
-     */
-    private Map<Integer, String> groupResult;
+    private static final Map<String, EscapeToken> ESCAPES = Map.ofEntries(
+            Map.entry("\\s", EscapeToken.WHITE),
+            Map.entry("\\S", EscapeToken.NON_WHITE),
+            Map.entry("\\d", EscapeToken.DIGIT),
+            Map.entry("\\D", EscapeToken.NON_DIGIT),
+            Map.entry("\\w", EscapeToken.WORD),
+            Map.entry("\\W", EscapeToken.NON_WORD),
+            Map.entry("\\.", EscapeToken.DOT),
+            Map.entry("\\(", EscapeToken.LEFT_BRACKET),
+            Map.entry("\\)", EscapeToken.RIGHT_BRACKET),
+            Map.entry("\\[", EscapeToken.LEFT_SQUARE_BRACKET),
+            Map.entry("\\]", EscapeToken.RIGHT_SQUARE_BRACKET),
+            Map.entry("\\\\", EscapeToken.BACKSLASH),
+            Map.entry("\\+", EscapeToken.PLUS),
+            Map.entry("\\*", EscapeToken.STAR),
+            Map.entry("\\?", EscapeToken.QUESTION_MARK)
+    );
+
     /**
-     * final group result
+     * key of the group counter of a compile
      */
-    private Map<Integer, String> finalGroup;
+    private static final Object GROUP_IDS = new Object();
+
     /**
      * compiled Parser
      */
@@ -46,9 +64,28 @@ public class RegexParser {
      * constructor
      */
     public RegexParser() {
-        this.groupId = new AtomicInteger(0);
-        this.groupResult = new HashMap<>();
-        this.finalGroup = new HashMap<>();
+    }
+
+    /**
+     * groups of one match
+     */
+    private static class Groups {
+        /**
+         * groups of the current attempt
+         */
+        final Map<Integer, String> current = new HashMap<>();
+        /**
+         * groups of the best match
+         */
+        final Map<Integer, String> found = new HashMap<>();
+    }
+
+    /**
+     * @param buffer the input
+     * @return the groups of the match of this RegexParser on the input
+     */
+    private Groups groups(IBuffer buffer) {
+        return buffer.getContext().local(this, Groups::new);
     }
 
     /**
@@ -132,19 +169,64 @@ public class RegexParser {
     }
 
     /**
+     * the recursive grammar is built once
      * @return the regex Parser
      */
     public Parser parser() {
+        Rule regex = Parser.ref();
+        return regex.set(parser(validToken(regex)));
+    }
+
+    /**
+     * @param token the token Parser
+     * @return the regex Parser
+     */
+    private Parser parser(Parser token) {
+        return token.chain(quantifier().optional())
+                .map(s -> {
+                    if (s.size() == 1) {
+                        return s.get(0);
+                    }
+                    return toRepeat((RepeatToken) s.get(1), (RParser) s.get(0));
+                })
+                .many().map(s -> RParser.builder().parser(chainParsers(s))
+                        .type(RParser.ParserType.PARSER)
+                        .quoted(quoted(s))
+                        .build());
+    }
+
+    /**
+     * "*", "+", "{m,n}", "{n}" or "?" after a token
+     * @return quantifier Parser
+     */
+    private static Parser quantifier() {
+        Parser number = TextParsers.satisfy(Character::isDigit).many().map(Mapper.toStr()).map(Mapper.toInt());
         return Parser.choose(
-                () -> many(),
-                () -> some(),
-                () -> range(),
-                () -> repeat(),
-                () -> optional(),
-                () -> validToken()
-        ).many().map(s -> RParser.builder().parser(chainParsers(s))
-                .type(RParser.ParserType.PARSER)
-                .build());
+                TextParsers.one('*').map(__ -> RepeatToken.builder().type(RepeatType.MANY).build()),
+                TextParsers.one('+').map(__ -> RepeatToken.builder().type(RepeatType.SOME).build()),
+                TextParsers.one('{').ignore()
+                        .chain(number)
+                        .chain(TextParsers.one(',').ignore())
+                        .chain(number)
+                        .chain(TextParsers.one('}').ignore())
+                        .map(s -> RepeatToken.builder().type(RepeatType.RANGE)
+                                .value(new int[] {(int) s.get(0), (int) s.get(1)}).build()),
+                TextParsers.one('{').ignore()
+                        .chain(number)
+                        .chain(TextParsers.one('}').ignore())
+                        .map(s -> RepeatToken.builder().type(RepeatType.REPEAT).value(s.get(0)).build()),
+                TextParsers.one('?').map(__ -> RepeatToken.builder().type(RepeatType.OPTIONAL).build())
+        );
+    }
+
+    /**
+     * A back-reference depends on the groups matched before it,
+     * so the outcome of a sequence with one at a position can not be cached.
+     * @param rParsers RParsers of a sequence
+     * @return if the sequence contains a back-reference
+     */
+    private static boolean quoted(List<RParser> rParsers) {
+        return rParsers.stream().anyMatch(RParser::isQuoted);
     }
 
     /**
@@ -154,27 +236,15 @@ public class RegexParser {
     private Parser chainParsers(List<RParser> rParsers) {
         List<Parser> parsers = rParsers.stream().map(rp -> {
             if (rp.getType() == RParser.ParserType.GROUP) {
-                return new AopParser(rp.getParser(), () -> {
-                    if (rp.getGroupId() == 0) {
-                        rp.setGroupId(groupId.incrementAndGet());
-                    }
-                }, res -> {
+                int id = rp.getGroupId();
+                return new AopParser(rp.getParser(), buffer -> {}, (buffer, res) -> {
                     if (res.isSuccess()) {
-                        groupResult.put(rp.getGroupId(), res.get(0));
+                        groups(buffer).current.put(id, (String) Mapper.toStr().apply(res.getResult()));
                     }
                 });
             }
             if (rp.getType() == RParser.ParserType.QUOTE) {
-                return Parser.empty().chain(() -> {
-                    if (!groupResult.containsKey(rp.getQuoteId())) {
-                        throw new InvalidRegexException("invalid group: " + rp.getQuoteId());
-                    }
-                    Parser base = TextParsers.string(groupResult.get(rp.getQuoteId()));
-                    if (rp.getFunc() == null) {
-                        return base;
-                    }
-                    return rp.getFunc().apply(base);
-                });
+                return quote(rp.getQuoteId(), rp.getFunc());
             }
             return rp.getParser();
         }).collect(Collectors.toList());
@@ -190,38 +260,113 @@ public class RegexParser {
             suppliers.add(() -> parsers.get(idx).map(Mapper.toStr()));
         }
 
-        BacktraceParser parser = new BacktraceParser(true, suppliers);
+        BacktraceParser parser = new BacktraceParser(true, suppliers).memoize(!quoted(rParsers));
+        if (rParsers.stream().anyMatch(rp -> rp.getType() == RParser.ParserType.GROUP)) {
+            // the groups are captured again along the match, rather than left from the last cut tried
+            parser.onResultFound(buffer -> {});
+        }
         return parser;
     }
 
+    /**
+     * @param quoteId the group id
+     * @param func repetition of the back-reference, null if there is none
+     * @return Parser of a back-reference
+     */
+    private Parser quote(int quoteId, Function<Parser, Parser> func) {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                String group = groups(buffer).current.get(quoteId);
+                if (group == null) {
+                    throw new InvalidRegexException("invalid group: " + quoteId);
+                }
+                Parser base = TextParsers.string(group);
+                return (func == null ? base : func.apply(base)).runParser(buffer);
+            }
+        };
+    }
+
+    /**
+     * Forget the groups of the current attempt and skip a character, to try the next position.
+     * @return A new Parser
+     */
+    private Parser restart() {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                groups(buffer).current.clear();
+                return TextParsers.skip(1).runParser(buffer);
+            }
+        };
+    }
 
     /**
-     * clean properties
+     * The '(' of a group, numbered in the order of the '('.
+     * @return Parser of the group id
      */
-    private void clean() {
-        this.groupId.set(0);
-        this.groupResult.clear();
-        this.finalGroup.clear();
+    private static Parser openGroup() {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                Result result = TextParsers.one('(').runParser(buffer);
+                if (result.isSuccess()) {
+                    int[] ids = buffer.getContext().local(GROUP_IDS, () -> new int[1]);
+                    result.map(__ -> ++ids[0]);
+                }
+                return result;
+            }
+        };
     }
 
+
     /**
      * @param src string to be matched
      * @return group result
      */
     public List<String> search(String src) {
-        clean();
-        Optional<String> result = match(src);
+        return search(src, null);
+    }
+
+    /**
+     * @param src string to be matched
+     * @param budget limits the work of the match, null if unlimited
+     * @return group result
+     * @throws RuntimeException if the budget is exhausted
+     */
+    public List<String> search(String src, ParseBudget budget) {
+        IBuffer buffer = Buffer.builder().data(src.getBytes()).build();
+        Optional<String> result = match(buffer, budget);
         if (result.isEmpty()) {
             return new ArrayList<>();
         }
-        this.finalGroup.put(0, result.get());
-        return this.finalGroup.entrySet().stream()
+        Map<Integer, String> found = groups(buffer).found;
+        found.put(0, result.get());
+        return found.entrySet().stream()
                 .sorted(Map.Entry.comparingByKey())
                 .map(en -> en.getValue()).collect(Collectors.toList());
     }
 
     public Optional<String> match(String src) {
-        Result result = this.compiledParser.runParser(Buffer.builder().data(src.getBytes()).build());
+        return match(src, null);
+    }
+
+    /**
+     * @param src string to be matched
+     * @param budget limits the work of the match, null if unlimited
+     * @return the matched string
+     * @throws RuntimeException if the budget is exhausted
+     */
+    public Optional<String> match(String src, ParseBudget budget) {
+        return match(Buffer.builder().data(src.getBytes()).build(), budget);
+    }
+
+    private Optional<String> match(IBuffer buffer, ParseBudget budget) {
+        Result result = budget == null ? this.compiledParser.runParser(buffer)
+                : this.compiledParser.runParser(buffer, budget);
+        if (result.isExhausted()) {
+            throw new RuntimeException(result.getErrorMsg());
+        }
         if (result.isSuccess()) {
             return Optional.of(result.get(0));
         }
@@ -233,88 +378,97 @@ public class RegexParser {
      */
     public void compile(String regex) {
         Parser parserParser = start().optional()
-                .chain(() -> parser())
-                .chain(() -> end().optional());
+                .chain(parser())
+                .chain(end().optional());
         List<RParser> parsers = parserParser.runParser(Buffer.builder().data(regex.getBytes()).build())
                 .getResult();
         switch (parsers.size()) {
             case 1:
                 //Excluding the head(^) and tail($), scanning is required
                 BacktraceParser mainParser = (BacktraceParser) parsers.get(0).getParser();
-                mainParser.onResultFound(() -> {
-                    this.finalGroup.putAll(groupResult);
-                });
-                this.compiledParser = mainParser.map(Mapper.toStr()).scan(() -> {
-                    this.groupResult.clear();
-                    this.groupId.set(0);
-                    return TextParsers.skip(1);
-                });
+                mainParser.onResultFound(this::found);
+                this.compiledParser = mainParser.map(Mapper.toStr()).scan(this::restart);
                 break;
             case 2:
                 //including head(^), scanning is not required
                 if (parsers.get(0).getType() == RParser.ParserType.START) {
                     mainParser = (BacktraceParser) parsers.get(1).getParser();
-                    mainParser.onResultFound(() -> {
-                        this.finalGroup.putAll(groupResult);
-                    });
+                    mainParser.onResultFound(this::found);
                     this.compiledParser = mainParser.map(Mapper.toStr());
                 }else {
                 //including tail($), followed by a eof() and scanning is required
                     mainParser = (BacktraceParser) parsers.get(0).getParser();
-                    mainParser.onResultFound(() -> {
-                        this.finalGroup.putAll(groupResult);
-                    });
-                    this.compiledParser = mainParser.map(Mapper.toStr()).scan(() -> {
-                                this.groupResult.clear();
-                                this.groupId.set(0);
-                                return TextParsers.skip(1);
-                            })
-                            .chain(() -> TextParsers.eof());
+                    mainParser.onResultFound(this::found);
+                    this.compiledParser = mainParser.map(Mapper.toStr()).scan(this::restart)
+                            .chain(TextParsers.eof());
                 }
                 break;
             case 3:
                 //including the head(^) and tail($), followed by a eof() and scanning is required
                 mainParser = (BacktraceParser) parsers.get(1).getParser();
-                mainParser.onResultFound(() -> {
-                    this.finalGroup.putAll(groupResult);
-                });
-                this.compiledParser = mainParser.map(Mapper.toStr()).chain(() -> TextParsers.eof());
+                mainParser.onResultFound(this::found);
+                this.compiledParser = mainParser.map(Mapper.toStr()).chain(TextParsers.eof());
                 break;
         }
     }
 
+    /**
+     * Keep the groups of a better match.
+     * @param buffer the input
+     */
+    private void found(IBuffer buffer) {
+        Groups groups = groups(buffer);
+        groups.found.putAll(groups.current);
+    }
+
     /**
      * @return token Parser
      */
     public Parser validToken() {
+        Rule regex = Parser.ref();
+        Parser token = validToken(regex);
+        regex.set(parser(token));
+        return token;
+    }
+
+    /**
+     * A token is mapped to a new RParser on every match, since an RParser is modified
+     * when it is repeated or grouped.
+     * @param regex the regex Parser, to parse groups
+     * @return token Parser
+     */
+    private Parser validToken(Parser regex) {
+        CharClass any = CharClass.of(Character::isISOControl).negate();
         return Parser.choose(
-                () -> escape(),
-                () -> TextParsers.one('.').map(Mapper.replace(RParser.builder()
+                escape(),
+                TextParsers.one('.').map(__ -> RParser.builder()
                         .type(RParser.ParserType.PARSER)
-                        .parser(TextParsers.satisfy(F.not(Character::isISOControl)))
-                        .build())),
-                () -> TextParsers.one('[').ignore()
-                        .chain(() -> select())
-                        .chain(() -> TextParsers.one(']').ignore())
+                        .parser(TextParsers.satisfy(any))
+                        .build()),
+                TextParsers.one('[').ignore()
+                        .chain(select())
+                        .chain(TextParsers.one(']').ignore())
                         .map(s -> RParser.builder()
                                 .type(RParser.ParserType.PARSER)
-                                .parser(TextParsers.satisfy((Predicate<Character>) s.get(0))).build()),
-                () -> TextParsers.one('\\').ignore()
-                        .chain(() -> NumberParsers.anyIntStr())
+                                .parser(TextParsers.satisfy((CharClass) s.get(0))).build()),
+                TextParsers.one('\\').ignore()
+                        .chain(NumberParsers.anyIntStr())
                         .map(s -> RParser.builder()
                                 .type(RParser.ParserType.QUOTE)
                                 .quoteId((int) s.get(0))
+                                .quoted(true)
                                 .build()),
-                () -> TextParsers.noneOf("^$+*.?{}()").map(s -> RParser.builder()
+                TextParsers.noneOf("^$+*.?{}()").map(s -> RParser.builder()
                         .type(RParser.ParserType.PARSER)
-                        .parser(TextParsers.satisfy(ch -> ch == s.get(0)))
+                        .parser(TextParsers.satisfy(CharClass.of((Character) s.get(0))))
                         .build()),
-                () -> TextParsers.one('(').ignore()
-                        .chain(() -> parser())
-                        .chain(() ->TextParsers.one(')').ignore())
+                openGroup()
+                        .chain(regex)
+                        .chain(TextParsers.one(')').ignore())
                         .map(s -> {
-                            RParser rp = RParser.class.cast(s.get(0));
+                            RParser rp = RParser.class.cast(s.get(1));
                             rp.setType(RParser.ParserType.GROUP);
+                            rp.setGroupId((int) s.get(0));
                             return rp;
                         })
         );
@@ -325,23 +479,10 @@ public class RegexParser {
      * @return escape Parser
      */
     public Parser escape() {
-        return Parser.choose(
-                () -> TextParsers.string("\\s").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.WHITE.getPredicate())).build())),
-                () -> TextParsers.string("\\S").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.NON_WHITE.getPredicate())).build())),
-                () -> TextParsers.string("\\d").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.DIGIT.getPredicate())).build())),
-                () -> TextParsers.string("\\D").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.NON_DIGIT.getPredicate())).build())),
-                () -> TextParsers.string("\\w").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.WORD.getPredicate())).build())),
-                () -> TextParsers.string("\\W").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.NON_WORD.getPredicate())).build())),
-                () -> TextParsers.string("\\.").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.DOT.getPredicate())).build())),
-                () -> TextParsers.string("\\(").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.LEFT_BRACKET.getPredicate())).build())),
-                () -> TextParsers.string("\\)").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.RIGHT_BRACKET.getPredicate())).build())),
-                () -> TextParsers.string("\\[").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.LEFT_SQUARE_BRACKET.getPredicate())).build())),
-                () -> TextParsers.string("\\]").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.RIGHT_SQUARE_BRACKET.getPredicate())).build())),
-                () -> TextParsers.string("\\\\").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.BACKSLASH.getPredicate())).build())),
-                () -> TextParsers.string("\\+").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.PLUS.getPredicate())).build())),
-                () -> TextParsers.string("\\*").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.STAR.getPredicate())).build())),
-                () -> TextParsers.string("\\?").map(Mapper.replace(RParser.builder().type(RParser.ParserType.PARSER).parser(TextParsers.satisfy(EscapeToken.QUESTION_MARK.getPredicate())).build()))
-        );
+        return TextParsers.oneOfStrings(ESCAPES).map(s -> RParser.builder()
+                .type(RParser.ParserType.PARSER)
+                .parser(TextParsers.satisfy(((EscapeToken) s.get(0)).getPredicate()))
+                .build());
     }
 
     /**
@@ -350,26 +491,22 @@ public class RegexParser {
      */
     public static Parser select() {
         Parser range = TextParsers.satisfy(Character::isLetterOrDigit)
-                .chain(() -> TextParsers.one('-').ignore())
-                .chain(() -> TextParsers.satisfy(Character::isLetterOrDigit))
-                .map(s -> (Predicate<Character>) character -> character >= (Character) s.get(0) && (Character) s.get(1) >= character);
-        Function<List, ?> mapper = s -> (Predicate<Character>) character -> {
-            Optional<Predicate> p = s.stream().reduce((a, b) -> (Predicate<Character>) x -> Predicate.class.cast(a).test(x) || Predicate.class.cast(b).test(x));
-            return p.get().test(character);
-        };
+                .chain(TextParsers.one('-').ignore())
+                .chain(TextParsers.satisfy(Character::isLetterOrDigit))
+                .map(s -> CharClass.range((Character) s.get(0), (Character) s.get(1)));
         return TextParsers.one('^').optional()
-                .chain(() -> Parser.choose(
-                        () -> range,
-                        () -> TextParsers.string("\\[").map(Mapper.replace('[')),
-                        () -> TextParsers.string("\\]").map(Mapper.replace(']')),
-                        () -> TextParsers.satisfy(F.noneOf(Character::isISOControl, ch -> ch == ']'))
-                                .map(s -> (Predicate<Character>) character -> character == s.get(0))
-                ).some().map(mapper))
+                .chain(Parser.choose(
+                        range,
+                        TextParsers.string("\\[").map(Mapper.replace(CharClass.of('['))),
+                        TextParsers.string("\\]").map(Mapper.replace(CharClass.of(']'))),
+                        TextParsers.satisfy(F.noneOf(Character::isISOControl, ch -> ch == ']'))
+                                .map(s -> CharClass.of((Character) s.get(0)))
+                ).some().map(s -> CharClass.union((CharClass[]) s.toArray(new CharClass[0]))))
                 .map(s -> {
                     if (s.size() == 1) {
-                        return Predicate.class.cast(s.get(0));
+                        return s.get(0);
                     }
-                    return (Predicate<Character>) character -> !Predicate.class.cast(s.get(1)).test(character);
+                    return CharClass.class.cast(s.get(1)).negate();
                 });
     }
 
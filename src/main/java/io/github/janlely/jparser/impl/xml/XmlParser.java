@@ -1,11 +1,12 @@
 package io.github.janlely.jparser.impl.xml;
 
 import io.github.janlely.jparser.Parser;
+import io.github.janlely.jparser.Rule;
 import io.github.janlely.jparser.parsers.TextParsers;
+import io.github.janlely.jparser.util.CharClass;
 import io.github.janlely.jparser.util.Mapper;
 
 import java.util.List;
-import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -17,15 +18,16 @@ public class XmlParser {
      * @return the final Parser
      */
     public static Parser parser() {
-        return nodeParser().chain(() -> TextParsers.eof());
+        return nodeParser().chain(TextParsers.eof());
     }
 
     /**
-     * Parse XmlNode
+     * Parse XmlNode, the recursive grammar is built once
      * @return Node Parser
      */
     public static Parser nodeParser() {
-        return emptyParser().or(() -> fullParser()).trim(true);
+        Rule node = Parser.ref();
+        return node.set(emptyParser().or(fullParser(node)).trim(true));
     }
 
     /**
@@ -33,7 +35,7 @@ public class XmlParser {
      * @return Content Parser
      */
     public static Parser contentParser() {
-        return contentEscapeParser().or(() ->
+        return contentEscapeParser().or(
                 TextParsers.satisfy(c -> !Character.isISOControl(c) && c != '<' && c != '>').trim(true)
         ).many().map(Mapper.toStr());
     }
@@ -43,15 +45,25 @@ public class XmlParser {
      * @return Full XML Parser
      */
     public static Parser fullParser() {
+        return fullParser(nodeParser());
+    }
+
+    /**
+     * The closing name is checked against the head, so in recognize mode only these two are built.
+     * @param node the Node Parser, to parse child nodes
+     * @return Full XML Parser
+     */
+    private static Parser fullParser(Parser node) {
+        Parser closeParser = TextParsers.string("</").ignore()
+                .chain(nameParser().trim(true))
+                .chain(TextParsers.string(">").ignore());
+        Parser bodyParser = node.some().or(contentParser());
         return headParser()
-                .chain(() -> nodeParser().some().or(() -> contentParser()))
-                .chainWith(result -> {
-                    String name = result.<XmlNode>get(0).getName();
-                    return TextParsers.string("</").ignore()
-                            .chain(() -> TextParsers.string(name).trim(true))
-                            .chain(() -> TextParsers.string(">").ignore())
-                            .ignore();
+                .chainWith(head -> {
+                    String name = head.<XmlNode>get(0).getName();
+                    return bodyParser.chain(closeParser.must(close -> name.equals(close.get(0))));
                 }).map(values -> {
+                    values = values.subList(0, values.size() - 1);
                     if (values.size() == 1) {
                         return values.get(0);
                     }
@@ -73,8 +85,8 @@ public class XmlParser {
      */
     public static Parser headParser() {
         return TextParsers.one('<').ignore()
-                .chain(() -> tagParser())
-                .chain(() -> TextParsers.one('>').ignore())
+                .chain(tagParser())
+                .chain(TextParsers.one('>').ignore())
                 .map(values -> {
                     String name = (String) values.get(0);
                     List<XmlProp> props = (List<XmlProp>) values.stream().skip(1).collect(Collectors.toList());
@@ -92,8 +104,8 @@ public class XmlParser {
      */
     public static Parser emptyParser() {
         return TextParsers.one('<').ignore()
-                .chain(() -> tagParser())
-                .chain(() -> TextParsers.string("/>").ignore())
+                .chain(tagParser())
+                .chain(TextParsers.string("/>").ignore())
                 .map(values -> {
                     String name = (String) values.get(0);
                     List<XmlProp> props = (List<XmlProp>) values.stream().skip(1).collect(Collectors.toList());
@@ -110,8 +122,8 @@ public class XmlParser {
      */
     public static Parser tagParser() {
         return nameParser()
-                .chain(() -> TextParsers.spaces())
-                .chain(() -> propParser().sepBy(TextParsers.spaces()).optional());
+                .chain(TextParsers.spaces())
+                .chain(propParser().sepBy(TextParsers.spaces()).optional());
     }
 
     /**
@@ -119,7 +131,7 @@ public class XmlParser {
      * @return Name Parser
      */
     public static Parser nameParser() {
-        return TextParsers.satisfy(validName())
+        return TextParsers.satisfy(validNameClass())
                 .some().map(Mapper.toStr());
     }
 
@@ -130,8 +142,8 @@ public class XmlParser {
     public static Parser propParser() {
         return nameParser()
                 .trim(true)
-                .chain(() -> TextParsers.one('=').ignore())
-                .chain(() -> propValueParser())
+                .chain(TextParsers.one('=').ignore())
+                .chain(propValueParser())
                 .map(kv -> XmlProp.builder().name((String) kv.get(0)).value((String) kv.get(1)).build());
     }
 
@@ -141,16 +153,16 @@ public class XmlParser {
      */
     public static Parser propValueParser() {
         Parser singleQuote = TextParsers.one('\'').ignore()
-                .chain(() -> valueEscapeParser().or(() ->
+                .chain(valueEscapeParser().or(
                         TextParsers.satisfy(c -> !Character.isISOControl(c) && c != '\'')
                 ).many().map(Mapper.toStr()))
-                .chain(() -> TextParsers.one('\'').ignore());
+                .chain(TextParsers.one('\'').ignore());
         Parser doubleQuote = TextParsers.one('"').ignore()
-                .chain(() -> valueEscapeParser().or(() ->
+                .chain(valueEscapeParser().or(
                         TextParsers.satisfy(c -> !Character.isISOControl(c) && c != '"')
                 ).many().map(Mapper.toStr()))
-                .chain(() -> TextParsers.one('"').ignore());
-        return singleQuote.or(() -> doubleQuote);
+                .chain(TextParsers.one('"').ignore());
+        return singleQuote.or(doubleQuote);
     }
 
     /**
@@ -167,7 +179,7 @@ public class XmlParser {
      * @return Content escape Parser
      */
     public static Parser contentEscapeParser() {
-        return TextParsers.string("&lt;").map(Mapper.replace('<')).or(() ->
+        return TextParsers.string("&lt;").map(Mapper.replace('<')).or(
                 TextParsers.string("&gt;").map(Mapper.replace('<')));
     }
 
@@ -176,7 +188,14 @@ public class XmlParser {
      * @return predicate of valid name
      */
     public static Predicate<Character> validName() {
-        return c -> Character.isLetterOrDigit(c)
-                || Set.of('.','-','_',':').contains(c);
+        return validNameClass();
+    }
+
+    /**
+     * Characters allowed in XML tag names
+     * @return CharClass of valid name
+     */
+    public static CharClass validNameClass() {
+        return CharClass.of(Character::isLetterOrDigit).union(CharClass.of(".-_:"));
     }
 }
@@ -3,12 +3,10 @@ package io.github.janlely.jparser.parsers;
 import io.github.janlely.jparser.IBuffer;
 import io.github.janlely.jparser.Parser;
 import io.github.janlely.jparser.Result;
-import io.github.janlely.jparser.util.ErrorUtil;
+import io.github.janlely.jparser.util.ByteSet;
 import io.github.janlely.jparser.util.Mapper;
 
-import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 import java.util.function.Predicate;
 
 /**
@@ -32,22 +30,28 @@ public class ByteParsers {
      * @return A Parser
      */
     public static Parser bytes(byte[] data, String desc) {
+        String expected = desc.isEmpty() ? null : desc;
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                byte[] bs = buffer.headN(data.length);
-                if (!Arrays.equals(data, bs)) {
-                    return Result.builder()
-                            .pos(buffer.getPos())
-                            .errorMsg(ErrorUtil.error(buffer))
-                            .build();
+                if (!buffer.regionEquals(data)) {
+                    return Result.fail(buffer, expected);
                 }
-                buffer.forward(bs.length);
+                buffer.forward(data.length);
                 return Result.builder()
                         .length(data.length)
                         .result(List.of(data))
                         .build();
             }
+            @Override
+            public ByteSet first() {
+                return data.length > 0 ? ByteSet.of(data[0]) : null;
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return matchLength(buffer);
+            }
         };
     }
 
@@ -61,19 +65,25 @@ public class ByteParsers {
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                Optional<Byte> b = buffer.head();
-                if (b.isEmpty() || !predicate.test(b.get())) {
-                    return Result.builder()
-                            .pos(buffer.getPos())
-                            .errorMsg(ErrorUtil.error(buffer))
-                            .build();
+                int b = buffer.peek(0);
+                if (b < 0 || !predicate.test((byte) b)) {
+                    return Result.fail(buffer);
                 }
                 buffer.forward(1);
                 return Result.builder()
-                        .result(List.of(b.get()))
+                        .result(List.of((byte) b))
                         .length(1)
                         .build();
             }
+            @Override
+            public ByteSet first() {
+                return ByteSet.of(b -> predicate.test((byte) b));
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return matchLength(buffer);
+            }
         };
     }
 
@@ -109,7 +119,33 @@ public class ByteParsers {
      * @return A new Parser
      */
     public static Parser takeWhile(Predicate<Byte> predicate) {
-        return satisfy(predicate).many().map(Mapper.toBytes());
+        return scanWhile(predicate, true);
+    }
+
+    /**
+     * Scan the bytes that satisfy a condition in one loop, without a Result per byte.
+     * @param predicate The predicate
+     * @param take return the scanned bytes or nothing
+     * @return A new Parser
+     */
+    private static Parser scanWhile(Predicate<Byte> predicate, boolean take) {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                int len = 0;
+                int b;
+                while ((b = buffer.peek(len)) >= 0 && predicate.test((byte) b)) {
+                    len++;
+                }
+                Result result = Result.empty();
+                if (take && !buffer.getContext().isRecognizing()) {
+                    result.getResult().add(buffer.headN(len));
+                }
+                buffer.forward(len);
+                result.incLen(len);
+                return result;
+            }
+        };
     }
 
 
@@ -127,6 +163,6 @@ public class ByteParsers {
      * @return A new Parser
      */
     public static Parser skipWhile(Predicate<Byte> predicate) {
-        return satisfy(predicate).many().ignore();
+        return scanWhile(predicate, false);
     }
 }
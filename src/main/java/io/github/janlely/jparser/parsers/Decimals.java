@@ -0,0 +1,52 @@
+package io.github.janlely.jparser.parsers;
+
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.util.ByteSet;
+
+/**
+ * Decimal integers accumulated directly from the buffer, shared by the integer parsers.
+ */
+final class Decimals {
+
+    /**
+     * first bytes of a signed decimal number
+     */
+    static final ByteSet SIGNED_FIRST = ByteSet.of(b -> b == '-' || (b >= '0' && b <= '9'));
+    /**
+     * first bytes of an unsigned decimal number
+     */
+    static final ByteSet DIGITS = ByteSet.of(b -> b >= '0' && b <= '9');
+
+    private Decimals() {
+    }
+
+    /**
+     * Accumulate a decimal integer at the cursor and move the buffer past it. The buffer is not
+     * moved if there is no digit or the value is out of range, the caller tells by the position.
+     * @param buffer the input
+     * @param signed if a leading '-' is allowed
+     * @param max the max value, the min value is -max - 1
+     * @param maxLen max bytes to read
+     * @return the value, 0 if the buffer is not moved
+     */
+    static long parse(IBuffer buffer, boolean signed, long max, int maxLen) {
+        boolean negative = signed && buffer.peek(0) == '-';
+        long limit = negative ? -max - 1 : -max;
+        long multmin = limit / 10;
+        int start = negative ? 1 : 0;
+        int i = start;
+        long value = 0;
+        for (int b = buffer.peek(i); i < maxLen && b >= '0' && b <= '9'; b = buffer.peek(++i)) {
+            int digit = b - '0';
+            if (value < multmin || value * 10 < limit + digit) {
+                return 0;
+            }
+            value = value * 10 - digit;
+        }
+        if (i == start) {
+            return 0;
+        }
+        buffer.forward(i);
+        return negative ? value : -value;
+    }
+}
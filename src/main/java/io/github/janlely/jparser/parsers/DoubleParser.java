@@ -0,0 +1,152 @@
+package io.github.janlely.jparser.parsers;
+
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.Parser;
+import io.github.janlely.jparser.Result;
+import io.github.janlely.jparser.util.ByteSet;
+import io.github.janlely.jparser.util.NumberUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Parse a decimal number: an optional leading '-', digits, an optional fraction and an optional exponent.
+ * As in JSON, the integer part has no leading zeros: "01" is the number 0 followed by "1".
+ * The number is scanned directly from the buffer,
+ * use {@link #parseDouble(IBuffer, DoubleConsumer)} to get the value without boxing.
+ */
+public class DoubleParser extends Parser {
+
+    DoubleParser() {
+    }
+
+    /**
+     * Parse a double, the buffer is not moved on failure.
+     * Up to 19 significant digits are accumulated while scanning and converted with
+     * {@link NumberUtil#toDouble(boolean, long, int)}, the JDK is used only for the cases it can not decide.
+     * @param buffer the input
+     * @param consumer receives the value
+     * @return if is success
+     */
+    public boolean parseDouble(IBuffer buffer, DoubleConsumer consumer) {
+        boolean negative = buffer.peek(0) == '-';
+        int i = negative ? 1 : 0;
+        long digits = 0;
+        int count = 0;
+        int exp10 = 0;
+        int b = buffer.peek(i);
+        if (b < '0' || b > '9') {
+            Result.fail(buffer, "number");
+            return false;
+        }
+        if (b == '0') {
+            // no leading zeros, the integer part ends after a single 0
+            b = buffer.peek(++i);
+        } else {
+            for (; b >= '0' && b <= '9'; b = buffer.peek(++i)) {
+                if (count < 19) {
+                    digits = digits * 10 + (b - '0');
+                    count += digits == 0 ? 0 : 1;
+                } else {
+                    exp10++;
+                    count++;
+                }
+            }
+        }
+        if (b == '.' && isDigit(buffer.peek(i + 1))) {
+            for (b = buffer.peek(++i); b >= '0' && b <= '9'; b = buffer.peek(++i)) {
+                if (count < 19) {
+                    digits = digits * 10 + (b - '0');
+                    count += digits == 0 ? 0 : 1;
+                    exp10--;
+                } else {
+                    count++;
+                }
+            }
+        }
+        if (b == 'e' || b == 'E') {
+            int sign = buffer.peek(i + 1) == '+' || buffer.peek(i + 1) == '-' ? 1 : 0;
+            if (isDigit(buffer.peek(i + 1 + sign))) {
+                boolean negativeExp = buffer.peek(i + 1) == '-';
+                int exp = 0;
+                i += 1 + sign;
+                for (b = buffer.peek(i); b >= '0' && b <= '9'; b = buffer.peek(++i)) {
+                    exp = Math.min(exp * 10 + (b - '0'), 100000);
+                }
+                exp10 += negativeExp ? -exp : exp;
+            }
+        }
+        double value = count > 19 ? Double.NaN : NumberUtil.toDouble(negative, digits, exp10);
+        if (Double.isNaN(value)) {
+            value = Double.parseDouble(new String(buffer.headN(i), StandardCharsets.ISO_8859_1));
+        }
+        buffer.forward(i);
+        consumer.accept(value);
+        return true;
+    }
+
+    /**
+     * Scan a number without converting it.
+     * @param buffer the input
+     * @return byte length of the number at the cursor, 0 if there is none
+     */
+    static int scan(IBuffer buffer) {
+        int i = buffer.peek(0) == '-' ? 1 : 0;
+        int integer = buffer.peek(i) == '0' ? 1 : digits(buffer, i);
+        if (integer == 0) {
+            return 0;
+        }
+        i += integer;
+        if (buffer.peek(i) == '.') {
+            int fraction = digits(buffer, i + 1);
+            if (fraction > 0) {
+                i += 1 + fraction;
+            }
+        }
+        int e = buffer.peek(i);
+        if (e == 'e' || e == 'E') {
+            int sign = buffer.peek(i + 1) == '+' || buffer.peek(i + 1) == '-' ? 1 : 0;
+            int exponent = digits(buffer, i + 1 + sign);
+            if (exponent > 0) {
+                i += 1 + sign + exponent;
+            }
+        }
+        return i;
+    }
+
+    private static boolean isDigit(int b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * @param buffer the input
+     * @param offset offset from the cursor
+     * @return count of the digits at cursor + offset
+     */
+    private static int digits(IBuffer buffer, int offset) {
+        int i = offset;
+        while (isDigit(buffer.peek(i))) {
+            i++;
+        }
+        return i - offset;
+    }
+
+    @Override
+    public Result parse(IBuffer buffer) {
+        long pos = buffer.getPos();
+        double[] value = new double[1];
+        if (!parseDouble(buffer, v -> value[0] = v)) {
+            return Result.fail(buffer, "number");
+        }
+        return Result.builder()
+                .result(List.of(value[0]))
+                .length((int) (buffer.getPos() - pos))
+                .build();
+    }
+
+    @Override
+    public ByteSet first() {
+        return Decimals.SIGNED_FIRST;
+    }
+}
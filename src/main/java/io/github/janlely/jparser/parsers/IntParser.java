@@ -0,0 +1,67 @@
+package io.github.janlely.jparser.parsers;
+
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.Parser;
+import io.github.janlely.jparser.Result;
+import io.github.janlely.jparser.util.ByteSet;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Parse a decimal int with an optional leading '-', digits are accumulated directly from the buffer.
+ * Use {@link #parseInt(IBuffer, IntConsumer)} to get the value without boxing.
+ */
+public class IntParser extends Parser {
+
+    /**
+     * if a leading '-' is allowed
+     */
+    private final boolean signed;
+
+    IntParser() {
+        this(true);
+    }
+
+    /**
+     * @param signed if a leading '-' is allowed
+     */
+    IntParser(boolean signed) {
+        this.signed = signed;
+    }
+
+    /**
+     * Parse an int, the buffer is not moved on failure.
+     * @param buffer the input
+     * @param consumer receives the value
+     * @return if is success
+     */
+    public boolean parseInt(IBuffer buffer, IntConsumer consumer) {
+        long pos = buffer.getPos();
+        int value = (int) Decimals.parse(buffer, this.signed, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        if (buffer.getPos() == pos) {
+            Result.fail(buffer, "int");
+            return false;
+        }
+        consumer.accept(value);
+        return true;
+    }
+
+    @Override
+    public Result parse(IBuffer buffer) {
+        long pos = buffer.getPos();
+        int value = (int) Decimals.parse(buffer, this.signed, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        if (buffer.getPos() == pos) {
+            return Result.fail(buffer, "int");
+        }
+        return Result.builder()
+                .result(List.of(value))
+                .length((int) (buffer.getPos() - pos))
+                .build();
+    }
+
+    @Override
+    public ByteSet first() {
+        return this.signed ? Decimals.SIGNED_FIRST : Decimals.DIGITS;
+    }
+}
@@ -0,0 +1,54 @@
+package io.github.janlely.jparser.parsers;
+
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.Parser;
+import io.github.janlely.jparser.Result;
+import io.github.janlely.jparser.util.ByteSet;
+
+import java.util.List;
+import java.util.function.LongConsumer;
+
+/**
+ * Parse a decimal long with an optional leading '-', digits are accumulated directly from the buffer.
+ * Use {@link #parseLong(IBuffer, LongConsumer)} to get the value without boxing.
+ */
+public class LongParser extends Parser {
+
+    LongParser() {
+    }
+
+    /**
+     * Parse a long, the buffer is not moved on failure.
+     * @param buffer the input
+     * @param consumer receives the value
+     * @return if is success
+     */
+    public boolean parseLong(IBuffer buffer, LongConsumer consumer) {
+        long pos = buffer.getPos();
+        long value = Decimals.parse(buffer, true, Long.MAX_VALUE, Integer.MAX_VALUE);
+        if (buffer.getPos() == pos) {
+            Result.fail(buffer, "long");
+            return false;
+        }
+        consumer.accept(value);
+        return true;
+    }
+
+    @Override
+    public Result parse(IBuffer buffer) {
+        long pos = buffer.getPos();
+        long value = Decimals.parse(buffer, true, Long.MAX_VALUE, Integer.MAX_VALUE);
+        if (buffer.getPos() == pos) {
+            return Result.fail(buffer, "long");
+        }
+        return Result.builder()
+                .result(List.of(value))
+                .length((int) (buffer.getPos() - pos))
+                .build();
+    }
+
+    @Override
+    public ByteSet first() {
+        return Decimals.SIGNED_FIRST;
+    }
+}
@@ -0,0 +1,19 @@
+package io.github.janlely.jparser.parsers;
+
+/**
+ * How a decimal number is represented after parsing
+ */
+public enum NumberMode {
+    /**
+     * always a Double
+     */
+    DOUBLE,
+    /**
+     * a Long if the number is an integer that fits, otherwise a Double
+     */
+    LONG,
+    /**
+     * always a BigDecimal, no precision is lost
+     */
+    BIG_DECIMAL
+}
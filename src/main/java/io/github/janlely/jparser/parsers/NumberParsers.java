@@ -3,11 +3,12 @@ package io.github.janlely.jparser.parsers;
 import io.github.janlely.jparser.IBuffer;
 import io.github.janlely.jparser.Parser;
 import io.github.janlely.jparser.Result;
-import io.github.janlely.jparser.util.ErrorUtil;
-import io.github.janlely.jparser.util.Mapper;
+import io.github.janlely.jparser.util.ByteSet;
 
+import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -26,13 +27,11 @@ public class NumberParsers {
 
 
     /**
-     * Parse any integer encoded as a string.
+     * Parse any integer encoded as a string of digits, without a sign.
      * @return A new Parser
      */
     public static Parser anyIntStr() {
-        return TextParsers.satisfy(Character::isDigit)
-                .some().map(Mapper.toStr())
-                .map(s -> Integer.parseInt((String) s.get(0)));
+        return new IntParser(false);
     }
 
     /**
@@ -40,10 +39,120 @@ public class NumberParsers {
      * @return A new Parser
      */
     public static Parser anyDoubleStr() {
-        return TextParsers.one('-').optional().chain(NumberParsers.anyIntStr())
-                .chain(TextParsers.one('.').chain(NumberParsers::anyDoubleStr).optional())
-                .map(Mapper.toStr())
-                .map(s -> Double.parseDouble((String) s.get(0)));
+        return anyDouble();
+    }
+
+    /**
+     * Parse any int encoded as a decimal string, with overflow checks.
+     * @return A new IntParser
+     */
+    public static IntParser anyInt() {
+        return new IntParser();
+    }
+
+    /**
+     * Parse any long integer encoded as a decimal string, with overflow checks.
+     * @return A new LongParser
+     */
+    public static LongParser anyLong() {
+        return new LongParser();
+    }
+
+    /**
+     * Parse any double encoded as a decimal string, with optional fraction and exponent.
+     * @return A new DoubleParser
+     */
+    public static DoubleParser anyDouble() {
+        return new DoubleParser();
+    }
+
+    /**
+     * Parse any decimal number, represented according to the mode.
+     * @param mode the NumberMode
+     * @return A new Parser
+     */
+    public static Parser anyNumber(NumberMode mode) {
+        switch (mode) {
+            case LONG:
+                return integralOrDouble();
+            case BIG_DECIMAL:
+                return anyBigDecimal();
+            default:
+                return anyDouble();
+        }
+    }
+
+    /**
+     * @return A new Parser, the result is a Long if the number is an integer that fits, otherwise a Double
+     */
+    private static Parser integralOrDouble() {
+        DoubleParser decimal = anyDouble();
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                int len = DoubleParser.scan(buffer);
+                if (len == 0) {
+                    return Result.fail(buffer, "number");
+                }
+                Object[] value = new Object[1];
+                long pos = buffer.getPos();
+                if (isIntegral(buffer, len)) {
+                    long integral = Decimals.parse(buffer, true, Long.MAX_VALUE, len);
+                    if (buffer.getPos() != pos) {
+                        value[0] = integral;
+                    }
+                }
+                if (buffer.getPos() == pos) {
+                    decimal.parseDouble(buffer, v -> value[0] = v);
+                }
+                return Result.builder()
+                        .result(List.of(value[0]))
+                        .length(len)
+                        .build();
+            }
+
+            @Override
+            public ByteSet first() {
+                return Decimals.SIGNED_FIRST;
+            }
+        };
+    }
+
+    private static boolean isIntegral(IBuffer buffer, int len) {
+        for (int i = 0; i < len; i++) {
+            int b = buffer.peek(i);
+            if (b == '.' || b == 'e' || b == 'E') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parse any decimal number without losing precision.
+     * @return A new Parser, the result is a BigDecimal
+     */
+    public static Parser anyBigDecimal() {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                int len = DoubleParser.scan(buffer);
+                if (len == 0) {
+                    return Result.fail(buffer, "number");
+                }
+                BigDecimal value = new BigDecimal(new String(buffer.headN(len), StandardCharsets.ISO_8859_1));
+                buffer.forward(len);
+                return Result.builder()
+                        .result(List.of(value))
+                        .length(len)
+                        .build();
+            }
+
+            @Override
+            public ByteSet first() {
+                return Decimals.SIGNED_FIRST;
+            }
+        };
     }
 
     /**
@@ -54,19 +163,15 @@ public class NumberParsers {
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                byte[] data = buffer.headN(8);
-                if (data.length != 4) {
-                    return Result.builder()
-                            .pos(buffer.getPos())
-                            .errorMsg(ErrorUtil.error(buffer))
-                            .build();
+                ByteBuffer bf = buffer.slice(0, 8);
+                if (bf.remaining() < 8) {
+                    return Result.fail(buffer, "8 bytes");
                 }
+                long value = bf.order(ByteOrder.BIG_ENDIAN).getLong();
                 buffer.forward(8);
-                ByteBuffer bf = ByteBuffer.wrap(data);
-                bf.order(ByteOrder.BIG_ENDIAN);
                 return Result.builder()
                         .length(8)
-                        .result(List.of(bf.getLong())).build();
+                        .result(List.of(value)).build();
             }
         };
     }
@@ -79,19 +184,15 @@ public class NumberParsers {
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                byte[] data = buffer.headN(8);
-                if (data.length != 4) {
-                    return Result.builder()
-                            .pos(buffer.getPos())
-                            .errorMsg(ErrorUtil.error(buffer))
-                            .build();
+                ByteBuffer bf = buffer.slice(0, 8);
+                if (bf.remaining() < 8) {
+                    return Result.fail(buffer, "8 bytes");
                 }
+                long value = bf.order(ByteOrder.LITTLE_ENDIAN).getLong();
                 buffer.forward(8);
-                ByteBuffer bf = ByteBuffer.wrap(data);
-                bf.order(ByteOrder.LITTLE_ENDIAN);
                 return Result.builder()
                         .length(8)
-                        .result(List.of(bf.getLong())).build();
+                        .result(List.of(value)).build();
             }
         };
     }
@@ -104,19 +205,15 @@ public class NumberParsers {
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                byte[] data = buffer.headN(4);
-                if (data.length != 4) {
-                    return Result.builder()
-                            .pos(buffer.getPos())
-                            .errorMsg(ErrorUtil.error(buffer))
-                            .build();
+                ByteBuffer bf = buffer.slice(0, 4);
+                if (bf.remaining() < 4) {
+                    return Result.fail(buffer, "4 bytes");
                 }
-                ByteBuffer bf = ByteBuffer.wrap(data);
-                bf.order(ByteOrder.BIG_ENDIAN);
+                int value = bf.order(ByteOrder.BIG_ENDIAN).getInt();
                 buffer.forward(4);
                 return Result.builder()
                         .length(4)
-                        .result(List.of(bf.getInt())).build();
+                        .result(List.of(value)).build();
             }
         };
     }
@@ -129,19 +226,15 @@ public class NumberParsers {
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                byte[] data = buffer.headN(4);
-                if (data.length != 4) {
-                    return Result.builder()
-                            .pos(buffer.getPos())
-                            .errorMsg(ErrorUtil.error(buffer))
-                            .build();
+                ByteBuffer bf = buffer.slice(0, 4);
+                if (bf.remaining() < 4) {
+                    return Result.fail(buffer, "4 bytes");
                 }
+                int value = bf.order(ByteOrder.LITTLE_ENDIAN).getInt();
                 buffer.forward(4);
-                ByteBuffer bf = ByteBuffer.wrap(data);
-                bf.order(ByteOrder.LITTLE_ENDIAN);
                 return Result.builder()
                         .length(4)
-                        .result(List.of(bf.getInt())).build();
+                        .result(List.of(value)).build();
             }
         };
     }
@@ -3,22 +3,29 @@ package io.github.janlely.jparser.parsers;
 import io.github.janlely.jparser.IBuffer;
 import io.github.janlely.jparser.Parser;
 import io.github.janlely.jparser.Result;
+import io.github.janlely.jparser.util.ByteSet;
+import io.github.janlely.jparser.util.ByteTrie;
+import io.github.janlely.jparser.util.CharClass;
 import io.github.janlely.jparser.util.CharUtil;
-import io.github.janlely.jparser.util.ErrorUtil;
 import io.github.janlely.jparser.util.Mapper;
-import org.apache.commons.lang3.StringUtils;
 
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.IntPredicate;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * Parsers to parse text
  */
 public class TextParsers {
 
+    private static final CharClass SPACE = CharClass.of(Character::isSpaceChar);
+    private static final CharClass WHITE = CharClass.of(Character::isWhitespace);
 
     /**
      * Parse a character using UTF-8 encoding.
@@ -37,7 +44,7 @@ public class TextParsers {
      */
     public static Parser one(char ch, boolean ignoreCase) {
         if (ignoreCase) {
-            return one(Character.toLowerCase(ch), StandardCharsets.UTF_8).or(() ->
+            return one(Character.toLowerCase(ch), StandardCharsets.UTF_8).or(
                     one(Character.toUpperCase(ch), StandardCharsets.UTF_8)
             ).map(Mapper.replace(ch));
         }
@@ -51,8 +58,8 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser one(char ch, Charset charset) {
-        return ByteParsers.bytes(String.valueOf(ch).getBytes(charset), String.format("== '%c'", ch))
-                .map(Mapper.toChar(charset));
+        return ByteParsers.bytes(String.valueOf(ch).getBytes(charset), "'" + ch + "'")
+                .map(Mapper.replace(ch));
     }
 
     /**
@@ -61,7 +68,7 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser oneOf(String str, Charset charset) {
-        return satisfy(c -> StringUtils.contains(str, c), charset);
+        return satisfy(CharClass.of(str), charset);
     }
 
     /**
@@ -69,7 +76,7 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser oneOf(String str) {
-        return satisfy(c -> StringUtils.contains(str, c));
+        return satisfy(CharClass.of(str));
     }
 
     /**
@@ -78,7 +85,7 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser noneOf(String str, Charset charset) {
-        return satisfy(c -> !StringUtils.contains(str,c), charset);
+        return satisfy(CharClass.of(str).negate(), charset);
     }
 
     /**
@@ -86,7 +93,7 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser noneOf(String str) {
-        return satisfy(c -> !StringUtils.contains(str,c));
+        return satisfy(CharClass.of(str).negate());
     }
 
     /**
@@ -108,24 +115,214 @@ public class TextParsers {
         return new Parser() {
             @Override
             public Result parse(IBuffer buffer) {
-                byte[] bytes = buffer.headN(4);
-                Optional<Character> ch = CharUtil.read(bytes, charset);
-                if (ch.isPresent() && predicate.test(ch.get())) {
-                    int len = String.valueOf(ch.get()).getBytes(charset).length;
+                long decoded = CharUtil.decode(buffer, charset);
+                int cp = CharUtil.codePoint(decoded);
+                if (decoded >= 0 && cp <= Character.MAX_VALUE && predicate.test((char) cp)) {
+                    int len = CharUtil.length(decoded);
                     buffer.forward(len);
                     return Result.builder()
-                            .result(List.of(ch.get()))
+                            .result(List.of((char) cp))
                             .length(len)
                             .build();
                 }
-                return Result.builder()
-                        .pos(buffer.getPos())
-                        .errorMsg(ErrorUtil.error(buffer))
-                        .build();
+                return Result.fail(buffer);
+            }
+
+            @Override
+            public ByteSet first() {
+                return leadBytes(bmp(predicate), charset);
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return matchLength(buffer);
             }
         };
     }
 
+    /**
+     * Parse a character of the given CharClass, using UTF-8 encoding.
+     * @param charClass The CharClass
+     * @return A new Parser
+     */
+    public static Parser satisfy(CharClass charClass) {
+        return satisfy(charClass, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a character of the given CharClass according to the given encoding.
+     * @param charClass The CharClass
+     * @param charset The charset
+     * @return A new Parser
+     */
+    public static Parser satisfy(CharClass charClass, Charset charset) {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                long decoded = CharUtil.decode(buffer, charset);
+                int cp = CharUtil.codePoint(decoded);
+                if (decoded >= 0 && cp <= Character.MAX_VALUE && charClass.test(cp)) {
+                    int len = CharUtil.length(decoded);
+                    buffer.forward(len);
+                    return Result.builder()
+                            .result(List.of((char) cp))
+                            .length(len)
+                            .build();
+                }
+                return Result.fail(buffer);
+            }
+
+            @Override
+            public ByteSet first() {
+                return leadBytes(cp -> cp <= Character.MAX_VALUE && charClass.test(cp), charset);
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return matchLength(buffer);
+            }
+        };
+    }
+
+    /**
+     * Parse a code point that satisfies a condition, using UTF-8 encoding.
+     * @param predicate The predicate
+     * @return A new Parser, the result is the code point
+     */
+    public static Parser satisfyCp(IntPredicate predicate) {
+        return satisfyCp(predicate, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse a code point that satisfies a condition according to the given encoding.
+     * Supplementary characters are decoded as one code point.
+     * @param predicate The predicate
+     * @param charset The charset
+     * @return A new Parser, the result is the code point
+     */
+    public static Parser satisfyCp(IntPredicate predicate, Charset charset) {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                long decoded = CharUtil.decode(buffer, charset);
+                if (decoded >= 0 && predicate.test(CharUtil.codePoint(decoded))) {
+                    int len = CharUtil.length(decoded);
+                    buffer.forward(len);
+                    return Result.builder()
+                            .result(List.of(CharUtil.codePoint(decoded)))
+                            .length(len)
+                            .build();
+                }
+                return Result.fail(buffer);
+            }
+
+            @Override
+            public ByteSet first() {
+                return leadBytes(predicate, charset);
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return matchLength(buffer);
+            }
+        };
+    }
+
+    /**
+     * Parse code points that satisfy a condition and return a string, using UTF-8.
+     * @param predicate The predicate
+     * @return A new Parser
+     */
+    public static Parser takeWhileCp(IntPredicate predicate) {
+        return takeWhileCp(predicate, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse code points that satisfy a condition according to the given encoding and return a string.
+     * @param predicate The predicate
+     * @param charset The charset
+     * @return A new Parser
+     */
+    public static Parser takeWhileCp(IntPredicate predicate, Charset charset) {
+        return scanWhile(predicate, charset, true);
+    }
+
+    /**
+     * Scan the code points that satisfy a condition in one loop, without a Result per character.
+     * @param predicate The predicate
+     * @param charset The charset
+     * @param take return the scanned string or nothing
+     * @return A new Parser
+     */
+    private static Parser scanWhile(IntPredicate predicate, Charset charset, boolean take) {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                int len = 0;
+                while (true) {
+                    long decoded = CharUtil.decode(buffer, len, charset);
+                    if (decoded < 0 || !predicate.test(CharUtil.codePoint(decoded))) {
+                        break;
+                    }
+                    len += CharUtil.length(decoded);
+                }
+                Result result = Result.empty();
+                if (take && !buffer.getContext().isRecognizing()) {
+                    result.getResult().add(new String(buffer.headN(len), charset));
+                }
+                buffer.forward(len);
+                result.incLen(len);
+                return result;
+            }
+        };
+    }
+
+    /**
+     * The bytes a character that satisfies the predicate may start with.
+     * For UTF-8 the ASCII part is exact and any multibyte lead byte is included.
+     * @param predicate the predicate on code points
+     * @param charset the charset
+     * @return the FIRST set, null if it is unknown for the charset
+     */
+    private static ByteSet leadBytes(IntPredicate predicate, Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return ByteSet.of(b -> b < 0x80 ? predicate.test(b) : b >= 0xC2 && b <= 0xF4);
+        }
+        if (StandardCharsets.US_ASCII.equals(charset)) {
+            return ByteSet.of(b -> b < 0x80 && predicate.test(b));
+        }
+        if (StandardCharsets.ISO_8859_1.equals(charset)) {
+            return ByteSet.of(predicate);
+        }
+        return null;
+    }
+
+    /**
+     * @param predicate the predicate on UTF-16 characters
+     * @return the predicate on code points, supplementary characters never match
+     */
+    private static IntPredicate bmp(Predicate<Character> predicate) {
+        return cp -> cp <= Character.MAX_VALUE && predicate.test((char) cp);
+    }
+
+    /**
+     * @param str the set of code points
+     * @return A new Parser, the result is the code point
+     */
+    public static Parser oneOfCp(String str) {
+        return oneOfCp(str, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param str the set of code points
+     * @param charset the charset
+     * @return A new Parser, the result is the code point
+     */
+    public static Parser oneOfCp(String str, Charset charset) {
+        int[] cps = str.codePoints().sorted().distinct().toArray();
+        return satisfyCp(cp -> Arrays.binarySearch(cps, cp) >= 0, charset);
+    }
+
     /**
      * Parse a given string.
      * @param value The string value
@@ -138,6 +335,7 @@ public class TextParsers {
 
     /**
      * Parse a given string, ignoring case.
+     * The lower and upper case encodings are precomputed, so a match is a single pass over the bytes.
      * @param value The string value
      * @param ignoreCase ignore case or not
      * @return A new Parser
@@ -146,27 +344,189 @@ public class TextParsers {
         if (!ignoreCase) {
             return string(value, StandardCharsets.UTF_8);
         }
+        byte[] lower = new byte[0];
+        byte[] upper = new byte[0];
+        int[] ends = new int[value.length()];
+        for (int i = 0; i < value.length(); i++) {
+            byte[] l = String.valueOf(Character.toLowerCase(value.charAt(i))).getBytes(StandardCharsets.UTF_8);
+            byte[] u = String.valueOf(Character.toUpperCase(value.charAt(i))).getBytes(StandardCharsets.UTF_8);
+            if (l.length != u.length) {
+                return stringIgnoreCase(value);
+            }
+            lower = concat(lower, l);
+            upper = concat(upper, u);
+            ends[i] = lower.length;
+        }
+        return caseless(value, lower, upper, ends);
+    }
+
+    /**
+     * Match a literal against its precomputed lower and upper case encodings,
+     * each character must match entirely in one of the two cases.
+     * @param value the string value
+     * @param lower the lower case encoding
+     * @param upper the upper case encoding
+     * @param ends end offset of each character
+     * @return A new Parser
+     */
+    private static Parser caseless(String value, byte[] lower, byte[] upper, int[] ends) {
+        String expected = "\"" + value + "\"";
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                int start = 0;
+                for (int end : ends) {
+                    boolean isLower = true;
+                    boolean isUpper = true;
+                    for (int i = start; i < end; i++) {
+                        int b = buffer.peek(i);
+                        isLower &= b == (lower[i] & 0xff);
+                        isUpper &= b == (upper[i] & 0xff);
+                    }
+                    if (!isLower && !isUpper) {
+                        return Result.fail(buffer, expected);
+                    }
+                    start = end;
+                }
+                buffer.forward(lower.length);
+                return Result.builder()
+                        .result(List.of(value))
+                        .length(lower.length)
+                        .build();
+            }
+
+            @Override
+            public ByteSet first() {
+                return lower.length > 0 ? ByteSet.of(lower[0], upper[0]) : null;
+            }
+        };
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Parse a given string character by character, ignoring case.
+     * Used when the two cases of a character have different encoded lengths.
+     * @param value The string value
+     * @return A new Parser
+     */
+    private static Parser stringIgnoreCase(String value) {
         Parser result = Parser.empty();
         for(int i = 0; i < value.length(); i++) {
-            int idx = i;
-            result = result.chain(() -> one(value.charAt(idx), true));
+            result = result.chain(one(value.charAt(i), true));
         }
         return result.map(Mapper.replace(value));
     }
 
     /**
      * Parse a given string according to the given encoding.
+     * The string is encoded once and matched with a single region compare.
      * @param value The string value
      * @param charset The charset
      * @return A new Parser
      */
     public static Parser string(String value, Charset charset) {
-        Parser result = Parser.empty();
-        for(int i = 0; i < value.length(); i++) {
-            int idx = i;
-            result = result.chain(() -> one(value.charAt(idx), charset));
-        }
-        return result.map(Mapper.toStr());
+        byte[] bytes = value.getBytes(charset);
+        String expected = "\"" + value + "\"";
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                if (!buffer.regionEquals(bytes)) {
+                    return Result.fail(buffer, expected);
+                }
+                buffer.forward(bytes.length);
+                return Result.builder()
+                        .result(List.of(value))
+                        .length(bytes.length)
+                        .build();
+            }
+
+            @Override
+            public ByteSet first() {
+                return bytes.length > 0 ? ByteSet.of(bytes[0]) : null;
+            }
+
+            @Override
+            public int[] candidates(IBuffer buffer) {
+                return matchLength(buffer);
+            }
+        };
+    }
+
+    /**
+     * Parse the longest of the given strings, using UTF-8 encoding.
+     * @param values the candidate strings
+     * @return A new Parser, the result is the matched string
+     */
+    public static Parser oneOfStrings(Collection<String> values) {
+        return oneOfStrings(values, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse the longest of the given strings according to the given encoding.
+     * The strings are compiled into a byte trie, so the choice is made in one pass over the input.
+     * @param values the candidate strings
+     * @param charset the charset
+     * @return A new Parser, the result is the matched string
+     */
+    public static Parser oneOfStrings(Collection<String> values, Charset charset) {
+        ByteTrie<String> trie = new ByteTrie<>();
+        values.forEach(value -> trie.put(value.getBytes(charset), value));
+        return oneOfStrings(trie, describe(values));
+    }
+
+    /**
+     * Parse the longest of the given strings and return the mapped value, using UTF-8 encoding.
+     * @param values strings and their values
+     * @param <T> the value type
+     * @return A new Parser, the result is the value of the matched string
+     */
+    public static <T> Parser oneOfStrings(Map<String, T> values) {
+        return oneOfStrings(values, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse the longest of the given strings according to the given encoding and return the mapped value.
+     * @param values strings and their values
+     * @param charset the charset
+     * @param <T> the value type
+     * @return A new Parser, the result is the value of the matched string
+     */
+    public static <T> Parser oneOfStrings(Map<String, T> values, Charset charset) {
+        ByteTrie<T> trie = new ByteTrie<>();
+        values.forEach((key, value) -> trie.put(key.getBytes(charset), value));
+        return oneOfStrings(trie, describe(values.keySet()));
+    }
+
+    private static String describe(Collection<String> values) {
+        return values.stream().map(value -> "\"" + value + "\"").collect(Collectors.joining(" or "));
+    }
+
+    private static Parser oneOfStrings(ByteTrie<?> trie, String expected) {
+        return new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                int node = trie.longestMatch(buffer);
+                if (node < 0) {
+                    return Result.fail(buffer, expected);
+                }
+                int len = trie.length(node);
+                buffer.forward(len);
+                return Result.builder()
+                        .result(List.of(trie.value(node)))
+                        .length(len)
+                        .build();
+            }
+
+            @Override
+            public ByteSet first() {
+                return trie.first();
+            }
+        };
     }
 
     /**
@@ -241,7 +601,45 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser takeWhile(Predicate<Character> predicate, Charset charset) {
-        return satisfy(predicate, charset).many().map(Mapper.toStr());
+        return scanWhile(bmp(predicate), charset, true);
+    }
+
+    /**
+     * Parse characters of the given CharClass and return a string, using UTF-8
+     * @param charClass The CharClass
+     * @return A new Parser
+     */
+    public static Parser takeWhile(CharClass charClass) {
+        return takeWhile(charClass, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parse characters of the given CharClass according to the given encoding and return a string.
+     * @param charClass The CharClass
+     * @param charset the charset
+     * @return A new Parser
+     */
+    public static Parser takeWhile(CharClass charClass, Charset charset) {
+        return scanWhile(charClass, charset, true);
+    }
+
+    /**
+     * Skip characters of the given CharClass, using UTF-8
+     * @param charClass The CharClass
+     * @return A new Parser
+     */
+    public static Parser skipWhile(CharClass charClass) {
+        return skipWhile(charClass, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Skip characters of the given CharClass according to the given encoding
+     * @param charClass The CharClass
+     * @param charset The charset
+     * @return A new Parser
+     */
+    public static Parser skipWhile(CharClass charClass, Charset charset) {
+        return scanWhile(charClass, charset, false);
     }
 
     /**
@@ -250,7 +648,7 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser skipWhile(Predicate<Character> predicate) {
-        return takeWhile(predicate, StandardCharsets.UTF_8).ignore();
+        return skipWhile(predicate, StandardCharsets.UTF_8);
     }
 
     /**
@@ -260,7 +658,7 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser skipWhile(Predicate<Character> predicate, Charset charset) {
-        return takeWhile(predicate, charset).ignore();
+        return scanWhile(bmp(predicate), charset, false);
     }
 
     /**
@@ -276,7 +674,7 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser spaces() {
-        return space().many();
+        return skipWhile(SPACE);
     }
 
     /**
@@ -292,7 +690,7 @@ public class TextParsers {
      * @return A new Parser
      */
     public static Parser whites() {
-        return white().many();
+        return skipWhile(WHITE);
     }
 
     /**
@@ -304,10 +702,7 @@ public class TextParsers {
             @Override
             public Result parse(IBuffer buffer) {
                 if (buffer.remaining() > 0) {
-                    return Result.builder()
-                            .errorMsg(ErrorUtil.error(buffer))
-                            .pos(buffer.getPos())
-                            .build();
+                    return Result.fail(buffer, "end of input");
                 }
                 return Result.empty();
             }
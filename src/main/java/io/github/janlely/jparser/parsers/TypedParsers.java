@@ -0,0 +1,139 @@
+package io.github.janlely.jparser.parsers;
+
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.TypedParser;
+import io.github.janlely.jparser.util.CharClass;
+import io.github.janlely.jparser.util.CharUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntPredicate;
+
+/**
+ * Text parsers for the {@link TypedParser} API, using UTF-8.
+ * The values are passed directly, without result lists.
+ */
+public class TypedParsers {
+
+    private static final CharClass SPACE = CharClass.of(Character::isSpaceChar);
+    private static final CharClass WHITE = CharClass.of(Character::isWhitespace);
+
+    /**
+     * Parse a given string.
+     * @param value The string value
+     * @return A new TypedParser, the value is the string
+     */
+    public static TypedParser<String> string(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        String expected = "\"" + value + "\"";
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                if (!buffer.regionEquals(bytes)) {
+                    return fail(buffer, expected);
+                }
+                buffer.forward(bytes.length);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Parse a character.
+     * @param ch The char
+     * @return A new TypedParser, the value is the char
+     */
+    public static TypedParser<Character> one(char ch) {
+        return string(String.valueOf(ch)).map(__ -> ch);
+    }
+
+    /**
+     * Parse a code point that satisfies a condition.
+     * @param predicate The predicate
+     * @return A new TypedParser, the value is the code point
+     */
+    public static TypedParser<Integer> satisfy(IntPredicate predicate) {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                long decoded = CharUtil.decode(buffer, StandardCharsets.UTF_8);
+                if (decoded < 0 || !predicate.test(CharUtil.codePoint(decoded))) {
+                    return fail(buffer, null);
+                }
+                buffer.forward(CharUtil.length(decoded));
+                return CharUtil.codePoint(decoded);
+            }
+        };
+    }
+
+    /**
+     * Parse code points that satisfy a condition.
+     * @param predicate The predicate
+     * @return A new TypedParser, the value is the string, which may be empty
+     */
+    public static TypedParser<String> takeWhile(IntPredicate predicate) {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                int len = scan(buffer, predicate);
+                String value = new String(buffer.headN(len), StandardCharsets.UTF_8);
+                buffer.forward(len);
+                return value;
+            }
+        };
+    }
+
+    /**
+     * Skip code points that satisfy a condition.
+     * @param predicate The predicate
+     * @return A new TypedParser, the value is null
+     */
+    public static TypedParser<Void> skipWhile(IntPredicate predicate) {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                buffer.forward(scan(buffer, predicate));
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Skip spaces, newline excluded
+     * @return A new TypedParser
+     */
+    public static TypedParser<Void> spaces() {
+        return skipWhile(SPACE);
+    }
+
+    /**
+     * Skip whitespace, newline included
+     * @return A new TypedParser
+     */
+    public static TypedParser<Void> whites() {
+        return skipWhile(WHITE);
+    }
+
+    /**
+     * Succeed only at the end of input.
+     * @return A new TypedParser
+     */
+    public static TypedParser<Void> eof() {
+        return new TypedParser<>() {
+            @Override
+            protected Object run(IBuffer buffer) {
+                return buffer.peek(0) < 0 ? null : fail(buffer, "end of input");
+            }
+        };
+    }
+
+    private static int scan(IBuffer buffer, IntPredicate predicate) {
+        int len = 0;
+        while (true) {
+            long decoded = CharUtil.decode(buffer, len, StandardCharsets.UTF_8);
+            if (decoded < 0 || !predicate.test(CharUtil.codePoint(decoded))) {
+                return len;
+            }
+            len += CharUtil.length(decoded);
+        }
+    }
+}
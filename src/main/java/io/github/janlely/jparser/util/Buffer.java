@@ -1,9 +1,10 @@
 package io.github.janlely.jparser.util;
 
 import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.ParseContext;
 import lombok.Builder;
-import lombok.Getter;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 /**
@@ -12,8 +13,8 @@ import java.util.Optional;
 @Builder
 public class Buffer implements IBuffer {
     private byte[] data;
-    @Getter
     private int pos;
+    private ParseContext context;
 
     @Override
     public void backward(int n) {
@@ -54,11 +55,43 @@ public class Buffer implements IBuffer {
         return bytes;
     }
 
+    @Override
+    public int peek(int offset) {
+        int idx = this.pos + offset;
+        if (idx < this.pos || idx >= this.data.length) {
+            return -1;
+        }
+        return this.data[idx] & 0xff;
+    }
+
+    @Override
+    public ByteBuffer slice(int from, int len) {
+        return view(this.data, this.pos + from, len, this.data.length);
+    }
+
+    @Override
+    public boolean regionEquals(byte[] bytes) {
+        return regionEquals(this.data, this.pos, this.data.length, bytes);
+    }
+
     @Override
     public void forward(int n) {
         this.pos += n;
     }
 
+    @Override
+    public long getPos() {
+        return this.pos;
+    }
+
+    @Override
+    public ParseContext getContext() {
+        if (this.context == null) {
+            this.context = new ParseContext();
+        }
+        return this.context;
+    }
+
     @Override
     public IBuffer[] splitAt(int idx) {
         if (idx < 0 || idx > remaining()) {
@@ -70,6 +103,39 @@ public class Buffer implements IBuffer {
         };
     }
 
+    /**
+     * @param data the data
+     * @param from start of the view
+     * @param len length of the view
+     * @param end end of the data, exclusive
+     * @return a read-only view
+     */
+    private static ByteBuffer view(byte[] data, int from, int len, int end) {
+        int start = Math.min(from, end);
+        return ByteBuffer.wrap(data, start, Math.max(0, Math.min(len, end - start)))
+                .slice()
+                .asReadOnlyBuffer();
+    }
+
+    /**
+     * @param data the data
+     * @param from start of the region
+     * @param end end of the data, exclusive
+     * @param bytes bytes to compare
+     * @return if the region equals the given bytes
+     */
+    private static boolean regionEquals(byte[] data, int from, int end, byte[] bytes) {
+        if (end - from < bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (data[from + i] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * ths sub-buffer
      */
@@ -79,6 +145,7 @@ public class Buffer implements IBuffer {
         int end;
         int p;
         byte[] data;
+        ParseContext context;
 
         /**
          * @param start start position
@@ -124,6 +191,25 @@ public class Buffer implements IBuffer {
             return bytes;
         }
 
+        @Override
+        public int peek(int offset) {
+            int idx = this.p + offset;
+            if (idx < this.p || idx > this.end) {
+                return -1;
+            }
+            return this.data[idx] & 0xff;
+        }
+
+        @Override
+        public ByteBuffer slice(int from, int len) {
+            return view(this.data, this.p + from, len, this.end + 1);
+        }
+
+        @Override
+        public boolean regionEquals(byte[] bytes) {
+            return Buffer.regionEquals(this.data, this.p, this.end + 1, bytes);
+        }
+
         @Override
         public void forward(int n) {
             this.p += n;
@@ -131,10 +217,18 @@ public class Buffer implements IBuffer {
 
 
         @Override
-        public int getPos() {
+        public long getPos() {
             return this.p;
         }
 
+        @Override
+        public ParseContext getContext() {
+            if (this.context == null) {
+                this.context = new ParseContext();
+            }
+            return this.context;
+        }
+
         @Override
         public IBuffer[] splitAt(int idx) {
             if (idx < 0 || idx > remaining()) {
@@ -0,0 +1,66 @@
+package io.github.janlely.jparser.util;
+
+import java.util.function.IntPredicate;
+
+/**
+ * An immutable set of byte values 0-255, such as the bytes a Parser may start with.
+ */
+public final class ByteSet {
+
+    /**
+     * the empty set
+     */
+    public static final ByteSet EMPTY = new ByteSet(new long[4]);
+
+    private final long[] bits;
+
+    private ByteSet(long[] bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * @param bytes the bytes in the set, as unsigned values
+     * @return A new ByteSet
+     */
+    public static ByteSet of(int... bytes) {
+        long[] bits = new long[4];
+        for (int b : bytes) {
+            bits[(b & 0xff) >>> 6] |= 1L << (b & 63);
+        }
+        return new ByteSet(bits);
+    }
+
+    /**
+     * @param predicate the predicate, evaluated once for each byte value
+     * @return A new ByteSet
+     */
+    public static ByteSet of(IntPredicate predicate) {
+        long[] bits = new long[4];
+        for (int b = 0; b < 256; b++) {
+            if (predicate.test(b)) {
+                bits[b >>> 6] |= 1L << (b & 63);
+            }
+        }
+        return new ByteSet(bits);
+    }
+
+    /**
+     * @param other another ByteSet
+     * @return A new ByteSet that contains the bytes of both
+     */
+    public ByteSet union(ByteSet other) {
+        long[] bits = new long[4];
+        for (int i = 0; i < 4; i++) {
+            bits[i] = this.bits[i] | other.bits[i];
+        }
+        return new ByteSet(bits);
+    }
+
+    /**
+     * @param b the byte as unsigned value
+     * @return if the byte is in the set
+     */
+    public boolean contains(int b) {
+        return b >= 0 && b < 256 && (this.bits[b >>> 6] & (1L << (b & 63))) != 0;
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.janlely.jparser.util;
+
+import io.github.janlely.jparser.IBuffer;
+
+import java.util.Arrays;
+
+/**
+ * A trie of byte strings, used to choose among many literals in one pass over the input.
+ * Nodes are addressed by int ids, so matching does not allocate.
+ * @param <V> the value type
+ */
+public final class ByteTrie<V> {
+
+    private static final int[] NO_CHILDREN = new int[0];
+
+    /**
+     * sorted child labels of each node, as unsigned bytes
+     */
+    private int[][] labels;
+    /**
+     * child node ids, parallel to labels
+     */
+    private int[][] next;
+    private int[] depth;
+    private boolean[] terminal;
+    private Object[] values;
+    private int size;
+
+    public ByteTrie() {
+        this.labels = new int[16][];
+        this.next = new int[16][];
+        this.depth = new int[16];
+        this.terminal = new boolean[16];
+        this.values = new Object[16];
+        newNode(0);
+    }
+
+    private int newNode(int d) {
+        if (this.size == this.depth.length) {
+            int capacity = this.size * 2;
+            this.labels = Arrays.copyOf(this.labels, capacity);
+            this.next = Arrays.copyOf(this.next, capacity);
+            this.depth = Arrays.copyOf(this.depth, capacity);
+            this.terminal = Arrays.copyOf(this.terminal, capacity);
+            this.values = Arrays.copyOf(this.values, capacity);
+        }
+        this.labels[this.size] = NO_CHILDREN;
+        this.next[this.size] = NO_CHILDREN;
+        this.depth[this.size] = d;
+        return this.size++;
+    }
+
+    /**
+     * Add a key, the value of an existing key is replaced.
+     * @param key the key
+     * @param value the value
+     * @return this
+     */
+    public ByteTrie<V> put(byte[] key, V value) {
+        int node = 0;
+        for (int i = 0; i < key.length; i++) {
+            int label = key[i] & 0xff;
+            int idx = Arrays.binarySearch(this.labels[node], label);
+            if (idx >= 0) {
+                node = this.next[node][idx];
+                continue;
+            }
+            int child = newNode(i + 1);
+            int at = -idx - 1;
+            this.labels[node] = insert(this.labels[node], at, label);
+            this.next[node] = insert(this.next[node], at, child);
+            node = child;
+        }
+        this.terminal[node] = true;
+        this.values[node] = value;
+        return this;
+    }
+
+    private static int[] insert(int[] array, int at, int value) {
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, at);
+        result[at] = value;
+        System.arraycopy(array, at, result, at + 1, array.length - at);
+        return result;
+    }
+
+    /**
+     * Find the longest key at the cursor of the buffer, the buffer is not moved.
+     * @param buffer the buffer
+     * @return the node id of the longest matched key, -1 if there is none
+     */
+    public int longestMatch(IBuffer buffer) {
+        int node = 0;
+        int found = this.terminal[0] ? 0 : -1;
+        for (int i = 0; ; i++) {
+            int[] children = this.labels[node];
+            if (children.length == 0) {
+                return found;
+            }
+            int b = buffer.peek(i);
+            if (b < 0) {
+                return found;
+            }
+            int idx = Arrays.binarySearch(children, b);
+            if (idx < 0) {
+                return found;
+            }
+            node = this.next[node][idx];
+            if (this.terminal[node]) {
+                found = node;
+            }
+        }
+    }
+
+    /**
+     * @return the first bytes of the keys, null if the empty key is present
+     */
+    public ByteSet first() {
+        return this.terminal[0] ? null : ByteSet.of(this.labels[0]);
+    }
+
+    /**
+     * @param node the node id
+     * @return the byte length of the key ending at node
+     */
+    public int length(int node) {
+        return this.depth[node];
+    }
+
+    /**
+     * @param node the node id
+     * @return the value of the key ending at node
+     */
+    public V value(int node) {
+        return (V) this.values[node];
+    }
+}
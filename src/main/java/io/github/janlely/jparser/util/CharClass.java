@@ -0,0 +1,257 @@
+package io.github.janlely.jparser.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * An immutable set of code points, built once and tested in the inner loop of a Parser.
+ * ASCII code points are tested against a 128-bit bitmap, other code points against sorted
+ * ranges, or against a predicate for classes such as {@link Character#isLetter(int)}.
+ */
+public final class CharClass implements IntPredicate, Predicate<Character> {
+
+    private static final int[] EMPTY = new int[0];
+
+    /**
+     * the empty class
+     */
+    public static final CharClass NONE = new CharClass(0, 0, EMPTY, EMPTY, null, false);
+
+    /**
+     * the class of all code points
+     */
+    public static final CharClass ANY = NONE.negate();
+
+    /**
+     * bitmap of code points 0-63
+     */
+    private final long low;
+    /**
+     * bitmap of code points 64-127
+     */
+    private final long high;
+    /**
+     * sorted and disjoint non-ASCII ranges, inclusive
+     */
+    private final int[] starts;
+    private final int[] ends;
+    /**
+     * extra test for non-ASCII code points, null if there is none
+     */
+    private final IntPredicate extra;
+    /**
+     * if the non-ASCII part is negated
+     */
+    private final boolean negated;
+
+    private CharClass(long low, long high, int[] starts, int[] ends, IntPredicate extra, boolean negated) {
+        this.low = low;
+        this.high = high;
+        this.starts = starts;
+        this.ends = ends;
+        this.extra = extra;
+        this.negated = negated;
+    }
+
+    /**
+     * @param chars the code points in the class
+     * @return A new CharClass
+     */
+    public static CharClass of(String chars) {
+        return of(chars.codePoints().toArray());
+    }
+
+    /**
+     * @param cps the code points in the class
+     * @return A new CharClass
+     */
+    public static CharClass of(int... cps) {
+        CharClass result = NONE;
+        for (int cp : cps) {
+            result = result.union(range(cp, cp));
+        }
+        return result;
+    }
+
+    /**
+     * @param from first code point, inclusive
+     * @param to last code point, inclusive
+     * @return A new CharClass
+     */
+    public static CharClass range(int from, int to) {
+        long low = 0;
+        long high = 0;
+        for (int cp = Math.max(0, from); cp <= Math.min(to, 127); cp++) {
+            if (cp < 64) {
+                low |= 1L << cp;
+            } else {
+                high |= 1L << (cp - 64);
+            }
+        }
+        int start = Math.max(from, 128);
+        if (start > to) {
+            return new CharClass(low, high, EMPTY, EMPTY, null, false);
+        }
+        return new CharClass(low, high, new int[] {start}, new int[] {to}, null, false);
+    }
+
+    /**
+     * The ASCII part of the predicate is evaluated once and compiled into the bitmap.
+     * @param predicate the predicate
+     * @return A new CharClass
+     */
+    public static CharClass of(IntPredicate predicate) {
+        long low = 0;
+        long high = 0;
+        for (int cp = 0; cp < 128; cp++) {
+            if (!predicate.test(cp)) {
+                continue;
+            }
+            if (cp < 64) {
+                low |= 1L << cp;
+            } else {
+                high |= 1L << (cp - 64);
+            }
+        }
+        return new CharClass(low, high, EMPTY, EMPTY, predicate, false);
+    }
+
+    /**
+     * @param classes classes to union
+     * @return A new CharClass
+     */
+    public static CharClass union(CharClass... classes) {
+        CharClass result = NONE;
+        for (CharClass c : classes) {
+            result = result.union(c);
+        }
+        return result;
+    }
+
+    /**
+     * @param other another CharClass
+     * @return A new CharClass that contains the code points of both
+     */
+    public CharClass union(CharClass other) {
+        if (isPlain() && other.isPlain()) {
+            int[][] merged = merge(this.starts, this.ends, other.starts, other.ends);
+            return new CharClass(this.low | other.low, this.high | other.high,
+                    merged[0], merged[1], null, false);
+        }
+        CharClass a = this;
+        CharClass b = other;
+        return new CharClass(this.low | other.low, this.high | other.high, EMPTY, EMPTY,
+                cp -> a.testNonAscii(cp) || b.testNonAscii(cp), false);
+    }
+
+    /**
+     * @return A new CharClass that contains the code points not in this
+     */
+    @Override
+    public CharClass negate() {
+        if (isPlain()) {
+            int[][] complement = complement(this.starts, this.ends);
+            return new CharClass(~this.low, ~this.high, complement[0], complement[1], null, false);
+        }
+        return new CharClass(~this.low, ~this.high, this.starts, this.ends, this.extra, !this.negated);
+    }
+
+    @Override
+    public boolean test(int cp) {
+        if (cp < 64) {
+            return cp >= 0 && (this.low & (1L << cp)) != 0;
+        }
+        if (cp < 128) {
+            return (this.high & (1L << (cp - 64))) != 0;
+        }
+        return testNonAscii(cp);
+    }
+
+    @Override
+    public boolean test(Character ch) {
+        return test((int) ch);
+    }
+
+    private boolean testNonAscii(int cp) {
+        return (inRanges(cp) || (this.extra != null && this.extra.test(cp))) != this.negated;
+    }
+
+    private boolean inRanges(int cp) {
+        int lo = 0;
+        int hi = this.starts.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (cp < this.starts[mid]) {
+                hi = mid - 1;
+            } else if (cp > this.ends[mid]) {
+                lo = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return if the non-ASCII part consists of ranges only
+     */
+    private boolean isPlain() {
+        return this.extra == null && !this.negated;
+    }
+
+    /**
+     * @return if any non-ASCII code point may be in the class
+     */
+    public boolean hasNonAscii() {
+        return this.starts.length > 0 || this.extra != null || this.negated;
+    }
+
+    private static int[][] merge(int[] s1, int[] e1, int[] s2, int[] e2) {
+        int[][] all = new int[s1.length + s2.length][];
+        for (int i = 0; i < s1.length; i++) {
+            all[i] = new int[] {s1[i], e1[i]};
+        }
+        for (int i = 0; i < s2.length; i++) {
+            all[s1.length + i] = new int[] {s2[i], e2[i]};
+        }
+        Arrays.sort(all, (a, b) -> Integer.compare(a[0], b[0]));
+        List<int[]> merged = new ArrayList<>();
+        for (int[] range : all) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(range);
+            }
+        }
+        int[][] result = new int[][] {new int[merged.size()], new int[merged.size()]};
+        for (int i = 0; i < merged.size(); i++) {
+            result[0][i] = merged.get(i)[0];
+            result[1][i] = merged.get(i)[1];
+        }
+        return result;
+    }
+
+    private static int[][] complement(int[] starts, int[] ends) {
+        List<int[]> ranges = new ArrayList<>();
+        int next = 128;
+        for (int i = 0; i < starts.length; i++) {
+            if (starts[i] > next) {
+                ranges.add(new int[] {next, starts[i] - 1});
+            }
+            next = ends[i] + 1;
+        }
+        if (next <= Character.MAX_CODE_POINT) {
+            ranges.add(new int[] {next, Character.MAX_CODE_POINT});
+        }
+        int[][] result = new int[][] {new int[ranges.size()], new int[ranges.size()]};
+        for (int i = 0; i < ranges.size(); i++) {
+            result[0][i] = ranges.get(i)[0];
+            result[1][i] = ranges.get(i)[1];
+        }
+        return result;
+    }
+}
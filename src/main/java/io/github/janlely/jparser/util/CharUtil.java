@@ -1,11 +1,13 @@
 package io.github.janlely.jparser.util;
 
+import io.github.janlely.jparser.IBuffer;
 import lombok.extern.slf4j.Slf4j;
 
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Optional;
 
 /**
@@ -20,9 +22,17 @@ public class CharUtil {
      * @return A character or not
      */
     public static Optional<Character> read(byte[] bytes, Charset charset) {
+        return read(ByteBuffer.wrap(bytes), charset);
+    }
+
+    /**
+     * @param bf bytes to be read
+     * @param charset charset
+     * @return A character or not
+     */
+    public static Optional<Character> read(ByteBuffer bf, Charset charset) {
         try {
             CharsetDecoder decoder = charset.newDecoder();
-            ByteBuffer bf = ByteBuffer.wrap(bytes);
             CharBuffer cb = CharBuffer.allocate(1);
             decoder.decode(bf, cb, true);
             return Optional.of(cb.flip().charAt(0));
@@ -31,4 +41,165 @@ public class CharUtil {
         }
     }
 
+
+    /**
+     * Decode the character at the cursor without consuming it.
+     * UTF-8, US-ASCII and ISO-8859-1 are decoded directly from the buffer,
+     * other charsets go through a CharsetDecoder.
+     * @param buffer the buffer
+     * @param charset the charset
+     * @return the byte length in the high 32 bits and the code point in the low 32 bits,
+     * or -1 if no character can be decoded
+     */
+    public static long decode(IBuffer buffer, Charset charset) {
+        return decode(buffer, 0, charset);
+    }
+
+    /**
+     * Decode the character at cursor + offset without consuming it.
+     * @param buffer the buffer
+     * @param offset offset from the cursor
+     * @param charset the charset
+     * @return the byte length in the high 32 bits and the code point in the low 32 bits,
+     * or -1 if no character can be decoded
+     */
+    public static long decode(IBuffer buffer, int offset, Charset charset) {
+        if (charset == StandardCharsets.UTF_8) {
+            return decodeUtf8(buffer, offset);
+        }
+        if (charset == StandardCharsets.US_ASCII) {
+            int b = buffer.peek(offset);
+            return b < 0 || b >= 0x80 ? -1 : pack(1, b);
+        }
+        if (charset == StandardCharsets.ISO_8859_1) {
+            int b = buffer.peek(offset);
+            return b < 0 ? -1 : pack(1, b);
+        }
+        if (charset == StandardCharsets.UTF_16BE) {
+            return decodeUtf16(buffer, offset, true);
+        }
+        if (charset == StandardCharsets.UTF_16LE) {
+            return decodeUtf16(buffer, offset, false);
+        }
+        return decodeGeneric(buffer, offset, charset);
+    }
+
+    /**
+     * @param decoded result of decode
+     * @return the code point
+     */
+    public static int codePoint(long decoded) {
+        return (int) decoded;
+    }
+
+    /**
+     * @param decoded result of decode
+     * @return the byte length
+     */
+    public static int length(long decoded) {
+        return (int) (decoded >>> 32);
+    }
+
+    private static long pack(int len, int cp) {
+        return ((long) len << 32) | cp;
+    }
+
+    /**
+     * @param buffer the buffer
+     * @param offset offset from the cursor
+     * @return the decoded code point and its length
+     */
+    private static long decodeUtf8(IBuffer buffer, int offset) {
+        int b0 = buffer.peek(offset);
+        if (b0 < 0x80) {
+            return b0 < 0 ? -1 : pack(1, b0);
+        }
+        if (b0 < 0xC2) {
+            return -1;
+        }
+        int b1 = buffer.peek(offset + 1);
+        if ((b1 & 0xC0) != 0x80) {
+            return -1;
+        }
+        if (b0 < 0xE0) {
+            return pack(2, ((b0 & 0x1F) << 6) | (b1 & 0x3F));
+        }
+        if ((b0 == 0xE0 && b1 < 0xA0) || (b0 == 0xED && b1 >= 0xA0)
+                || (b0 == 0xF0 && b1 < 0x90) || (b0 == 0xF4 && b1 >= 0x90) || b0 > 0xF4) {
+            //overlong, surrogate or out of range
+            return -1;
+        }
+        int b2 = buffer.peek(offset + 2);
+        if ((b2 & 0xC0) != 0x80) {
+            return -1;
+        }
+        if (b0 < 0xF0) {
+            return pack(3, ((b0 & 0x0F) << 12) | ((b1 & 0x3F) << 6) | (b2 & 0x3F));
+        }
+        int b3 = buffer.peek(offset + 3);
+        if ((b3 & 0xC0) != 0x80) {
+            return -1;
+        }
+        return pack(4, ((b0 & 0x07) << 18) | ((b1 & 0x3F) << 12) | ((b2 & 0x3F) << 6) | (b3 & 0x3F));
+    }
+
+    /**
+     * @param buffer the buffer
+     * @param offset offset from the cursor
+     * @param bigEndian byte order
+     * @return the decoded code point and its length
+     */
+    private static long decodeUtf16(IBuffer buffer, int offset, boolean bigEndian) {
+        int high = readUnit(buffer, offset, bigEndian);
+        if (high < 0 || Character.isLowSurrogate((char) high)) {
+            return -1;
+        }
+        if (!Character.isHighSurrogate((char) high)) {
+            return pack(2, high);
+        }
+        int low = readUnit(buffer, offset + 2, bigEndian);
+        if (low < 0 || !Character.isLowSurrogate((char) low)) {
+            return -1;
+        }
+        return pack(4, Character.toCodePoint((char) high, (char) low));
+    }
+
+    private static int readUnit(IBuffer buffer, int offset, boolean bigEndian) {
+        int b0 = buffer.peek(offset);
+        int b1 = buffer.peek(offset + 1);
+        if (b0 < 0 || b1 < 0) {
+            return -1;
+        }
+        return bigEndian ? (b0 << 8) | b1 : (b1 << 8) | b0;
+    }
+
+    /**
+     * @param buffer the buffer
+     * @param offset offset from the cursor
+     * @param charset the charset
+     * @return the decoded character and its length
+     */
+    private static long decodeGeneric(IBuffer buffer, int offset, Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset)) {
+            return decodeUtf8(buffer, offset);
+        }
+        try {
+            ByteBuffer bf = buffer.slice(offset, 4);
+            CharBuffer cb = CharBuffer.allocate(1);
+            charset.newDecoder().decode(bf, cb, true);
+            if (cb.position() == 1) {
+                return pack(bf.position(), cb.get(0));
+            }
+            //a supplementary character needs two chars
+            bf = buffer.slice(offset, 8);
+            cb = CharBuffer.allocate(2);
+            charset.newDecoder().decode(bf, cb, true);
+            if (cb.position() == 2 && Character.isSurrogatePair(cb.get(0), cb.get(1))) {
+                return pack(bf.position(), Character.toCodePoint(cb.get(0), cb.get(1)));
+            }
+            return -1;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
 }
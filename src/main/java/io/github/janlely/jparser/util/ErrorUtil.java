@@ -13,8 +13,19 @@ public class ErrorUtil {
      * @return error message
      */
     public static String error(IBuffer buffer) {
-        return String.format("unexpected character at: %d, char hex: %02x",
-                buffer.getPos(),
-                buffer.head().orElse((byte) 0));
+        return error(buffer.getPos(), buffer.peek(0), null);
+    }
+
+    /**
+     * @param pos the position
+     * @param head the byte at the position, -1 at the end of input
+     * @param expected description of what was expected, null if unknown
+     * @return error message
+     */
+    public static String error(long pos, int head, String expected) {
+        String msg = head < 0
+                ? String.format("unexpected end of input at: %d", pos)
+                : String.format("unexpected character at: %d, char hex: %02x", pos, head);
+        return expected == null ? msg : msg + ", expected: " + expected;
     }
 }
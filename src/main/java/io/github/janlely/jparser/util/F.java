@@ -20,15 +20,10 @@ public class F {
     /**
      * @param ps  predicates
      * @param <T> the type
-     * @return A new predicate
+     * @return A new predicate that is satisfied if none of the predicates is satisfied
      */
     public static <T> Predicate<T> noneOf(Predicate<T> ...ps) {
-        return t -> Arrays.stream(ps).reduce((a, b) -> new Predicate<T>() {
-            @Override
-            public boolean test(T t) {
-                return !a.test(t) && !b.test(t);
-            }
-        }).get().test(t);
+        return not(any(ps));
     }
 
     /**
@@ -37,12 +32,7 @@ public class F {
      * @return A new predicate
      */
     public static <T> Predicate<T> any(Predicate<T> ...ps) {
-        return t -> Arrays.stream(ps).reduce((a, b) -> new Predicate<T>() {
-            @Override
-            public boolean test(T t) {
-                return a.test(t) || b.test(t);
-            }
-        }).get().test(t);
+        return Arrays.stream(ps).reduce(Predicate::or).get();
     }
 
     /**
@@ -51,12 +41,7 @@ public class F {
      * @return A new predicate
      */
     public static <T> Predicate<T> all(Predicate<T> ...ps) {
-        return t -> Arrays.stream(ps).reduce((a, b) -> new Predicate<T>() {
-            @Override
-            public boolean test(T t) {
-                return a.test(t) && b.test(t);
-            }
-        }).get().test(t);
+        return Arrays.stream(ps).reduce(Predicate::and).get();
     }
 
 }
@@ -0,0 +1,234 @@
+package io.github.janlely.jparser.util;
+
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.ParseContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Buffer over a memory-mapped file.
+ * The file is mapped as a sequence of read-only segments, so files larger than 2GB
+ * can be parsed without loading them into the heap.
+ */
+public class MappedFileBuffer implements IBuffer {
+
+    /**
+     * default size of one mapped segment
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentSize;
+    /**
+     * first position of this buffer, inclusive
+     */
+    private final long start;
+    /**
+     * last position of this buffer, exclusive
+     */
+    private final long end;
+    private long pos;
+    private ParseContext context;
+
+    /**
+     * @param path the file to map
+     * @throws IOException if the file can not be mapped
+     */
+    public MappedFileBuffer(Path path) throws IOException {
+        this(path, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * @param path the file to map
+     * @param segmentSize size of one mapped segment
+     * @throws IOException if the file can not be mapped
+     */
+    public MappedFileBuffer(Path path, int segmentSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            this.segments = map(channel, segmentSize);
+            this.segmentSize = segmentSize;
+            this.start = 0;
+            this.end = channel.size();
+            this.pos = 0;
+        }
+    }
+
+    /**
+     * @param channel the file channel to map, it can be closed after construction
+     * @param segmentSize size of one mapped segment
+     * @throws IOException if the file can not be mapped
+     */
+    public MappedFileBuffer(FileChannel channel, int segmentSize) throws IOException {
+        this.segments = map(channel, segmentSize);
+        this.segmentSize = segmentSize;
+        this.start = 0;
+        this.end = channel.size();
+        this.pos = 0;
+    }
+
+    private MappedFileBuffer(MappedByteBuffer[] segments, int segmentSize, long start, long end) {
+        this.segments = segments;
+        this.segmentSize = segmentSize;
+        this.start = start;
+        this.end = end;
+        this.pos = start;
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, int segmentSize) throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("segment size must be positive");
+        }
+        long size = channel.size();
+        int count = (int) ((size + segmentSize - 1) / segmentSize);
+        MappedByteBuffer[] segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long offset = (long) i * segmentSize;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(segmentSize, size - offset));
+        }
+        return segments;
+    }
+
+    /**
+     * @param idx absolute position
+     * @return the byte at idx
+     */
+    private byte get(long idx) {
+        return segments[(int) (idx / segmentSize)].get((int) (idx % segmentSize));
+    }
+
+    /**
+     * @return the length of this buffer
+     */
+    public long size() {
+        return this.end - this.start;
+    }
+
+    /**
+     * @return remaining bytes as long
+     */
+    public long remainingLong() {
+        return this.end - this.pos;
+    }
+
+    @Override
+    public void backward(int n) {
+        if (this.pos - n < this.start) {
+            throw new RuntimeException("unable to backward, hit top");
+        }
+        this.pos -= n;
+    }
+
+    @Override
+    public int remaining() {
+        return (int) Math.min(Integer.MAX_VALUE, remainingLong());
+    }
+
+    @Override
+    public Optional<Byte> head() {
+        if (this.pos < this.end) {
+            return Optional.of(get(this.pos));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public byte[] headN(int n) {
+        int len = (int) Math.min(n, Math.max(0, remainingLong()));
+        byte[] bytes = new byte[len];
+        copy(this.pos, bytes, len);
+        return bytes;
+    }
+
+    private void copy(long from, byte[] dest, int len) {
+        int written = 0;
+        while (written < len) {
+            long idx = from + written;
+            int offset = (int) (idx % segmentSize);
+            MappedByteBuffer segment = segments[(int) (idx / segmentSize)];
+            int n = Math.min(len - written, segment.limit() - offset);
+            segment.slice().position(offset).get(dest, written, n);
+            written += n;
+        }
+    }
+
+    @Override
+    public int peek(int offset) {
+        long idx = this.pos + offset;
+        if (offset < 0 || idx >= this.end) {
+            return -1;
+        }
+        return get(idx) & 0xff;
+    }
+
+    @Override
+    public ByteBuffer slice(int from, int len) {
+        long idx = Math.min(this.pos + from, this.end);
+        int n = (int) Math.max(0, Math.min(len, this.end - idx));
+        int offset = (int) (idx % segmentSize);
+        int index = (int) (idx / segmentSize);
+        if (index < segments.length && offset + n <= segments[index].limit()) {
+            ByteBuffer view = segments[index].duplicate();
+            view.position(offset).limit(offset + n);
+            return view.slice().asReadOnlyBuffer();
+        }
+        byte[] bytes = new byte[n];
+        copy(idx, bytes, n);
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean regionEquals(byte[] bytes) {
+        if (remainingLong() < bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (get(this.pos + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void forward(int n) {
+        this.pos += n;
+    }
+
+    @Override
+    public long getPos() {
+        return this.pos;
+    }
+
+    @Override
+    public ParseContext getContext() {
+        if (this.context == null) {
+            this.context = new ParseContext();
+        }
+        return this.context;
+    }
+
+    @Override
+    public IBuffer[] splitAt(int idx) {
+        if (idx < 0 || idx > remainingLong()) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new IBuffer[] {
+                new MappedFileBuffer(this.segments, this.segmentSize, this.pos, this.pos + idx),
+                new MappedFileBuffer(this.segments, this.segmentSize, this.pos + idx, this.end)
+        };
+    }
+
+    @Override
+    public byte[] remainContent() {
+        if (remainingLong() > Integer.MAX_VALUE) {
+            throw new RuntimeException("remaining content is too large to copy");
+        }
+        return headN(remaining());
+    }
+}
@@ -17,6 +17,20 @@ public class Mapper {
         return chars -> chars.stream().map(String::valueOf).collect(Collectors.joining());
     }
 
+    /**
+     * [Integer code point] -&gt; String
+     * @return a mapper
+     */
+    public static Function<List, ?> cpToStr() {
+        return cps -> {
+            StringBuilder sb = new StringBuilder(cps.size());
+            for (Object cp : cps) {
+                sb.appendCodePoint((Integer) cp);
+            }
+            return sb.toString();
+        };
+    }
+
     /**
      * [String](1)-&gt; Int
      * @return a mapper
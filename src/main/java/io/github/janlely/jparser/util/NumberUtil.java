@@ -0,0 +1,122 @@
+package io.github.janlely.jparser.util;
+
+import java.math.BigInteger;
+
+/**
+ * Correctly rounded conversion of a decimal significand and exponent to a double.
+ * Uses Clinger's exact fast path, then the Eisel-Lemire algorithm.
+ * The rare inputs that neither can decide are left to the caller.
+ */
+public final class NumberUtil {
+
+    private static final int SMALLEST_POWER = -342;
+    private static final int LARGEST_POWER = 308;
+
+    /**
+     * powers of ten that are exact doubles
+     */
+    private static final double[] EXACT = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * 128-bit approximations of 5^q for q in [-342, 308], high and low 64 bits
+     */
+    private static final long[] POW5 = powersOfFive();
+
+    private NumberUtil() {
+    }
+
+    private static long[] powersOfFive() {
+        long[] table = new long[2 * (LARGEST_POWER - SMALLEST_POWER + 1)];
+        BigInteger five = BigInteger.valueOf(5);
+        for (int q = SMALLEST_POWER; q <= LARGEST_POWER; q++) {
+            BigInteger c;
+            if (q < 0) {
+                BigInteger power = five.pow(-q);
+                int z = power.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                c = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+            } else {
+                c = five.pow(q);
+            }
+            int shift = c.bitLength() - 128;
+            c = shift > 0 ? c.shiftRight(shift) : c.shiftLeft(-shift);
+            int index = 2 * (q - SMALLEST_POWER);
+            table[index] = c.shiftRight(64).longValue();
+            table[index + 1] = c.longValue();
+        }
+        return table;
+    }
+
+    /**
+     * Compute digits * 10^exp10, correctly rounded.
+     * @param negative if the number is negative
+     * @param digits the decimal significand, as an unsigned long
+     * @param exp10 the decimal exponent
+     * @return the double, or NaN if the value can not be decided here
+     */
+    public static double toDouble(boolean negative, long digits, int exp10) {
+        if (digits == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (digits > 0 && digits <= 1L << 53 && exp10 >= -22 && exp10 <= 22) {
+            double value = exp10 < 0 ? (double) digits / EXACT[-exp10] : (double) digits * EXACT[exp10];
+            return negative ? -value : value;
+        }
+        if (exp10 > LARGEST_POWER) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        if (exp10 < SMALLEST_POWER) {
+            return Double.NaN;
+        }
+        int lz = Long.numberOfLeadingZeros(digits);
+        long w = digits << lz;
+        int index = 2 * (exp10 - SMALLEST_POWER);
+        long high = multiplyHigh(w, POW5[index]);
+        long low = w * POW5[index];
+        if ((high & 0x1FF) == 0x1FF) {
+            long next = multiplyHigh(w, POW5[index + 1]);
+            long sum = low + next;
+            if (Long.compareUnsigned(next, sum) > 0) {
+                high++;
+            }
+            low = sum;
+        }
+        if (low == -1L) {
+            return Double.NaN;
+        }
+        int upperBit = (int) (high >>> 63);
+        long mantissa = high >>> (upperBit + 9);
+        int power2 = (((152170 + 65536) * exp10) >> 16) + 63 + upperBit - lz + 1023;
+        if (power2 <= 0) {
+            return Double.NaN;
+        }
+        if (Long.compareUnsigned(low, 1) <= 0 && exp10 >= -4 && exp10 <= 23 && (mantissa & 3) == 1
+                && (mantissa << (upperBit + 9)) == high) {
+            mantissa &= ~1L;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= 2L << 52) {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        mantissa &= ~(1L << 52);
+        if (power2 >= 0x7FF) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        double value = Double.longBitsToDouble(mantissa | ((long) power2 << 52));
+        return negative ? -value : value;
+    }
+
+    /**
+     * @param a unsigned long
+     * @param b unsigned long
+     * @return the high 64 bits of the unsigned 128-bit product
+     */
+    private static long multiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+}
@@ -0,0 +1,304 @@
+package io.github.janlely.jparser.util;
+
+import io.github.janlely.jparser.IBuffer;
+import io.github.janlely.jparser.ParseContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Buffer over a stream, backed by a refillable ring buffer.
+ * Only a bounded backtrack window behind the cursor is retained, plus the bytes pinned by
+ * {@link #mark()}. Moving backward past the retained bytes fails fast. Looking ahead is not
+ * bounded by the window, the ring grows when more bytes are needed ahead of the cursor.
+ */
+public class StreamBuffer implements IBuffer {
+
+    /**
+     * default size of the backtrack window
+     */
+    public static final int DEFAULT_WINDOW = 64 * 1024;
+
+    /**
+     * max size of the ring buffer
+     */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final ReadableByteChannel channel;
+    private byte[] ring;
+    private int mask;
+    private final int window;
+    /**
+     * oldest retained position
+     */
+    private long floor;
+    /**
+     * end of the bytes read so far
+     */
+    private long limit;
+    private long pos;
+    private boolean eof;
+    private long[] marks;
+    private int markCount;
+    private ParseContext context;
+
+    /**
+     * @param in the input stream
+     */
+    public StreamBuffer(InputStream in) {
+        this(Channels.newChannel(in), DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param in the input stream
+     * @param window bytes to retain behind the cursor
+     */
+    public StreamBuffer(InputStream in, int window) {
+        this(Channels.newChannel(in), window);
+    }
+
+    /**
+     * @param channel the input channel
+     * @param window bytes to retain behind the cursor
+     */
+    public StreamBuffer(ReadableByteChannel channel, int window) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window must be positive");
+        }
+        long capacity = Long.highestOneBit(Math.max(16L, window) * 2 - 1) << 1;
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("window must be at most " + MAX_CAPACITY / 2);
+        }
+        this.channel = channel;
+        this.ring = new byte[(int) capacity];
+        this.mask = (int) capacity - 1;
+        this.window = window;
+        this.marks = new long[8];
+    }
+
+    /**
+     * Read from the channel until need bytes are available ahead of the cursor or the stream ends.
+     * @param need bytes needed
+     */
+    private void fill(int need) {
+        while (this.limit - this.pos < need && !this.eof) {
+            release(this.pos - this.window);
+            int free = this.ring.length - (int) (this.limit - this.floor);
+            if (free == 0) {
+                grow();
+                free = this.ring.length - (int) (this.limit - this.floor);
+            }
+            int offset = (int) (this.limit & this.mask);
+            int len = Math.min(free, this.ring.length - offset);
+            int n;
+            try {
+                n = this.channel.read(ByteBuffer.wrap(this.ring, offset, len));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (n < 0) {
+                this.eof = true;
+            } else {
+                this.limit += n;
+            }
+        }
+    }
+
+    /**
+     * Double the ring buffer, the retained bytes keep their positions.
+     */
+    private void grow() {
+        if (this.ring.length >= MAX_CAPACITY) {
+            throw new RuntimeException("unable to read ahead, buffer limit exceeded");
+        }
+        byte[] grown = new byte[this.ring.length * 2];
+        int mask = grown.length - 1;
+        for (long i = this.floor; i < this.limit; i++) {
+            grown[(int) (i & mask)] = this.ring[(int) (i & this.mask)];
+        }
+        this.ring = grown;
+        this.mask = mask;
+    }
+
+    /**
+     * Drop the bytes before the given position unless they are pinned by a mark.
+     * @param keep the position to keep from
+     */
+    private void release(long keep) {
+        for (int i = 0; i < this.markCount; i++) {
+            keep = Math.min(keep, this.marks[i]);
+        }
+        keep = Math.min(keep, this.limit);
+        if (keep > this.floor) {
+            this.floor = keep;
+        }
+    }
+
+    @Override
+    public void backward(int n) {
+        if (this.pos - n < this.floor) {
+            throw new RuntimeException("unable to backward, out of the backtrack window");
+        }
+        this.pos -= n;
+    }
+
+    /**
+     * For a stream the total size is unknown, this returns the bytes buffered ahead of the
+     * cursor, and 0 only at the end of the stream.
+     * @return remaining bytes
+     */
+    @Override
+    public int remaining() {
+        fill(1);
+        return (int) Math.max(0, this.limit - this.pos);
+    }
+
+    @Override
+    public Optional<Byte> head() {
+        fill(1);
+        if (this.pos < this.limit) {
+            return Optional.of(this.ring[(int) (this.pos & this.mask)]);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public byte[] headN(int n) {
+        fill(n);
+        int len = (int) Math.max(0, Math.min(n, this.limit - this.pos));
+        byte[] bytes = new byte[len];
+        int offset = (int) (this.pos & this.mask);
+        int first = Math.min(len, this.ring.length - offset);
+        System.arraycopy(this.ring, offset, bytes, 0, first);
+        System.arraycopy(this.ring, 0, bytes, first, len - first);
+        return bytes;
+    }
+
+    @Override
+    public int peek(int offset) {
+        if (offset < 0) {
+            return -1;
+        }
+        fill(offset + 1);
+        if (this.pos + offset >= this.limit) {
+            return -1;
+        }
+        return this.ring[(int) ((this.pos + offset) & this.mask)] & 0xff;
+    }
+
+    /**
+     * The view shares the ring buffer when the bytes are contiguous,
+     * it is only valid until the buffer reads more data.
+     * @param from offset from the cursor
+     * @param len byte counts
+     * @return a read-only view
+     */
+    @Override
+    public ByteBuffer slice(int from, int len) {
+        fill(from + len);
+        long idx = Math.min(this.pos + from, this.limit);
+        int n = (int) Math.max(0, Math.min(len, this.limit - idx));
+        int offset = (int) (idx & this.mask);
+        if (offset + n <= this.ring.length) {
+            return ByteBuffer.wrap(this.ring, offset, n).slice().asReadOnlyBuffer();
+        }
+        byte[] bytes = new byte[n];
+        int first = this.ring.length - offset;
+        System.arraycopy(this.ring, offset, bytes, 0, first);
+        System.arraycopy(this.ring, 0, bytes, first, n - first);
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    @Override
+    public boolean regionEquals(byte[] bytes) {
+        fill(bytes.length);
+        if (this.limit - this.pos < bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (this.ring[(int) ((this.pos + i) & this.mask)] != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void forward(int n) {
+        while (n > 0) {
+            fill(1);
+            int step = (int) Math.min(n, this.limit - this.pos);
+            if (step <= 0) {
+                this.pos += n;
+                return;
+            }
+            this.pos += step;
+            n -= step;
+        }
+    }
+
+    @Override
+    public long getPos() {
+        return this.pos;
+    }
+
+    @Override
+    public ParseContext getContext() {
+        if (this.context == null) {
+            this.context = new ParseContext();
+        }
+        return this.context;
+    }
+
+    /**
+     * Reads the rest of the stream, see {@link #remainContent()}.
+     * @param idx position to split at
+     * @return byte array buffers before and after idx
+     */
+    @Override
+    public IBuffer[] splitAt(int idx) {
+        return Buffer.builder().data(remainContent()).build().splitAt(idx);
+    }
+
+    /**
+     * Reads the rest of the stream into memory, the cursor does not move.
+     * @return the bytes from the cursor to the end of the stream
+     */
+    @Override
+    public byte[] remainContent() {
+        while (!this.eof) {
+            fill((int) Math.min(MAX_CAPACITY, this.limit - this.pos + this.ring.length));
+        }
+        return headN((int) Math.max(0, this.limit - this.pos));
+    }
+
+    @Override
+    public void mark() {
+        if (this.markCount == this.marks.length) {
+            this.marks = Arrays.copyOf(this.marks, this.markCount * 2);
+        }
+        this.marks[this.markCount++] = this.pos;
+    }
+
+    @Override
+    public void unmark() {
+        if (this.markCount > 0) {
+            this.markCount--;
+        }
+    }
+
+    @Override
+    public void commit() {
+        unmark();
+        if (this.markCount == 0) {
+            release(this.pos);
+            getContext().release(this.pos);
+        }
+    }
+}
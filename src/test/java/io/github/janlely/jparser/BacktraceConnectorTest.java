@@ -25,4 +25,43 @@ public class BacktraceConnectorTest {
         assert result.isSuccess();
         assert result.<String>get(0).equals("aaaaa");
     }
+
+    @Test
+    public void testLongInput() {
+        Parser parser = new BacktraceParser(true, () -> TextParsers.any().many(),
+                () -> TextParsers.string("ab").many(), () -> TextParsers.one('c'))
+                .map(Mapper.toStr());
+        String src = "x".repeat(10000) + "ababc";
+        Result result = parser.runParser(Buffer.builder().data(src.getBytes()).build());
+        assert result.isSuccess();
+        assert result.<String>get(0).equals(src);
+    }
+
+    @Test
+    public void testRejectedSplitDeferred() {
+        int[] calls = new int[1];
+        Parser parser = new BacktraceParser(false,
+                () -> TextParsers.any().map(s -> ++calls[0]).many(), () -> TextParsers.one('a'))
+                .chain(TextParsers.one('!'))
+                .or(TextParsers.any().many());
+        Result result = parser.runDeferred(Buffer.builder().data("xxxxxxxxxa".getBytes()).build());
+        assert result.isSuccess() && result.getLength() == 10;
+        assert calls[0] == 0 : calls[0];
+    }
+
+    @Test
+    public void testRejectedSplitRecognize() {
+        int[] calls = new int[1];
+        Parser parser = new BacktraceParser(false,
+                () -> TextParsers.any().map(s -> ++calls[0]).many(), () -> TextParsers.one('a'))
+                .chain(TextParsers.one('!'))
+                .or(TextParsers.any().many());
+        assert parser.recognize(Buffer.builder().data("xxxxxxxxxa".getBytes()).build()) == 10;
+        assert calls[0] == 0 : calls[0];
+
+        IBuffer buffer = Buffer.builder().data("xz".getBytes()).build();
+        assert new BacktraceParser(false, () -> TextParsers.string("xy"), () -> TextParsers.one('c'))
+                .runParser(buffer).isError();
+        assert buffer.getContext().getExpected().contains("\"xy\"") : buffer.getContext().getExpected();
+    }
 }
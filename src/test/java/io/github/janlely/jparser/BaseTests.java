@@ -3,10 +3,14 @@ package io.github.janlely.jparser;
 import io.github.janlely.jparser.parsers.ByteParsers;
 import io.github.janlely.jparser.parsers.TextParsers;
 import io.github.janlely.jparser.util.Buffer;
+import io.github.janlely.jparser.util.ByteSet;
 import io.github.janlely.jparser.util.Mapper;
 import org.apache.commons.lang3.ArrayUtils;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class BaseTests {
 
     @Test
@@ -21,6 +25,110 @@ public class BaseTests {
         assert result2.isError();
     }
 
+    @Test
+    public void testMemo() {
+        int[] count = new int[2];
+        String src = "((((((((1+2))))))))";
+        for (int i = 0; i < 2; i++) {
+            boolean memo = i == 1;
+            int idx = i;
+            Parser[] expr = new Parser[1];
+            Parser digit = TextParsers.satisfy(Character::isDigit);
+            Parser term = Parser.choose(
+                    TextParsers.one('(').chain(() -> expr[0]).chain(TextParsers.one(')')),
+                    digit);
+            Parser counted = new Parser() {
+                @Override
+                public Result parse(IBuffer buffer) {
+                    count[idx]++;
+                    return term.runParser(buffer);
+                }
+            };
+            Parser t = memo ? counted.memo() : counted;
+            expr[0] = Parser.choose(
+                    t.chain(TextParsers.one('+')).chain(() -> expr[0]),
+                    t.chain(TextParsers.one('-')).chain(() -> expr[0]),
+                    t);
+            Result result = expr[0].runParser(Buffer.builder().data(src.getBytes()).build());
+            assert result.isSuccess();
+            assert result.getLength() == src.length();
+            assert result.getResult().size() == src.length();
+        }
+        assert count[0] > 1000;
+        assert count[1] < 50;
+    }
+
+    @Test
+    public void testRule() {
+        Rule list = Parser.ref();
+        list.set(TextParsers.one('[').ignore()
+                .chain(list.or(TextParsers.satisfy(Character::isDigit)).sepBy(TextParsers.one(',')).optional())
+                .chain(TextParsers.one(']').ignore())
+                .map(s -> s));
+        Result result = list.runParser(Buffer.builder().data("[1,[2,[]],3]".getBytes()).build());
+        assert result.isSuccess();
+        assert result.getLength() == 12;
+        assert result.<List>get(0).size() == 3;
+    }
+
+    @Test
+    public void testChooseDispatch() {
+        int[] count = new int[1];
+        Parser counted = new Parser() {
+            @Override
+            public Result parse(IBuffer buffer) {
+                count[0]++;
+                return TextParsers.string("true").runParser(buffer);
+            }
+
+            @Override
+            public ByteSet first() {
+                return ByteSet.of('t');
+            }
+        };
+        Parser parser = Parser.choose(
+                counted,
+                TextParsers.string("null"),
+                TextParsers.oneOfStrings(List.of("[", "{")),
+                TextParsers.satisfy(Character::isDigit).some().map(Mapper.toStr()));
+        assert parser.first().contains('n');
+        assert parser.first().contains('7');
+        assert !parser.first().contains(' ');
+        assert parser.runParser(Buffer.builder().data("null".getBytes()).build()).<String>get(0).equals("null");
+        assert parser.runParser(Buffer.builder().data("42".getBytes()).build()).<String>get(0).equals("42");
+        assert parser.runParser(Buffer.builder().data("{".getBytes()).build()).<String>get(0).equals("{");
+        assert parser.runParser(Buffer.builder().data("".getBytes()).build()).isError();
+        assert count[0] == 0;
+        assert parser.runParser(Buffer.builder().data("true".getBytes()).build()).<String>get(0).equals("true");
+        assert count[0] == 1;
+
+        Parser spaced = TextParsers.string("a").or(TextParsers.string("b").trim(false));
+        assert spaced.first() == null;
+        assert spaced.runParser(Buffer.builder().data(" b".getBytes()).build()).isSuccess();
+    }
+
+    @Test
+    public void testFurthestError() {
+        Parser parser = TextParsers.one('[').ignore()
+                .chain(Parser.choose(TextParsers.string("true"), TextParsers.string("false"), TextParsers.string("tru")))
+                .chain(TextParsers.one(']').ignore());
+        IBuffer buffer = Buffer.builder().data("[trux]".getBytes()).build();
+        Result result = parser.runParser(buffer);
+        assert result.isError();
+        assert result.getErrorMsg() != null;
+        assert buffer.getContext().getFurthestPos() == 4;
+        assert buffer.getContext().getExpected().equals(List.of("']'"));
+        assert buffer.getContext().getError().equals("unexpected character at: 4, char hex: 78, expected: ']'");
+
+        buffer = Buffer.builder().data("[fals".getBytes()).build();
+        assert parser.runParser(buffer).isError();
+        assert buffer.getContext().getExpected().equals(List.of("\"false\""));
+        assert buffer.getContext().getError().startsWith("unexpected character at: 1, char hex: 66");
+
+        assert TextParsers.string("[tru]").runParser(buffer, ParseBudget.builder().build()).isError();
+        assert buffer.getContext().getExpected().equals(List.of("\"[tru]\""));
+    }
+
     @Test
     public void testSome() {
         Result result1 = TextParsers.one('a').some().map(Mapper.toStr())
@@ -146,6 +254,24 @@ public class BaseTests {
                 .map(Mapper.toStr())
                 .runParser(Buffer.builder().data("abcxxxxabc".getBytes()).build());
         assert result.<String>get().equals("abcxxxx");
+
+        result = TextParsers.any().manyTill(TextParsers.string("abc"), true)
+                .map(Mapper.toStr())
+                .runParser(Buffer.builder().data("xabcyabcz".getBytes()).build());
+        assert result.<String>get().equals("xabcy");
+
+        result = TextParsers.any().repeatTill(() -> TextParsers.string("abc"), 0, Integer.MAX_VALUE, true, true)
+                .map(Mapper.toStr())
+                .runParser(Buffer.builder().data("xabcyabcz".getBytes()).build());
+        assert result.<String>get().equals("xabcyabc");
+        assert result.getLength() == 8;
+
+        String log = "line;abc".repeat(50000) + "tail";
+        IBuffer buffer = Buffer.builder().data(log.getBytes()).build();
+        result = TextParsers.any().manyTill(TextParsers.string("abc"), true).runParser(buffer);
+        assert result.getLength() == log.length() - 7;
+        assert result.getResult().size() == log.length() - 7;
+        assert buffer.getPos() == log.length() - 7;
     }
 
     @Test
@@ -154,4 +280,76 @@ public class BaseTests {
                 .runParser(Buffer.builder().data("xxxxabc".getBytes()).build());
         assert "xxx".equals(new String(result.<byte[]>get()));
     }
+
+    @Test
+    public void testRecognize() {
+        int[] mapped = new int[1];
+        Parser word = TextParsers.takeWhile(Character::isLetter)
+                .map(s -> {
+                    mapped[0]++;
+                    return s.get(0);
+                });
+        Parser parser = word.sepBy(TextParsers.one(','));
+        assert parser.recognize(Buffer.builder().data("ab,cd,e;".getBytes()).build()) == 7;
+        assert mapped[0] == 0;
+        Parser checked = word.must(r -> r.<String>get(0).startsWith("a")).many();
+        assert checked.recognize(Buffer.builder().data("abab".getBytes()).build()) == 4;
+        assert mapped[0] > 0;
+        assert checked.chain(TextParsers.eof()).recognize(Buffer.builder().data("b".getBytes()).build()) == -1;
+        assert parser.runParser(Buffer.builder().data("ab,cd".getBytes()).build()).getResult().size() == 2;
+    }
+
+    @Test
+    public void testDeferred() {
+        int[] mapped = new int[1];
+        Parser word = TextParsers.takeWhile(Character::isLetter)
+                .map(s -> {
+                    mapped[0]++;
+                    return ((String) s.get(0)).toUpperCase();
+                });
+        Parser parser = word.chain(TextParsers.one(';'))
+                .or(word.chain(TextParsers.one(',')))
+                .map(s -> s.get(0) + "!");
+        Result eager = parser.runParser(Buffer.builder().data("ab,".getBytes()).build());
+        assert eager.<String>get(0).equals("AB!");
+        assert mapped[0] == 2;
+        mapped[0] = 0;
+        Result deferred = parser.runDeferred(Buffer.builder().data("ab,".getBytes()).build());
+        assert deferred.<String>get(0).equals("AB!");
+        assert mapped[0] == 1;
+    }
+
+    @Test
+    public void testBudget() {
+        Parser word = TextParsers.one('a').many().chain(TextParsers.one(';'));
+        Parser parser = word.or(TextParsers.one('a').many().chain(TextParsers.one(',')));
+        IBuffer buffer = Buffer.builder().data(("a".repeat(100) + ",").getBytes()).build();
+        Result result = parser.runParser(buffer, ParseBudget.builder().steps(50).build());
+        assert result.isExhausted();
+        assert result.getErrorMsg().equals("parse budget exhausted");
+        assert buffer.getPos() == 0;
+        result = parser.runParser(buffer, ParseBudget.builder().backtracks(1).build());
+        assert result.isSuccess() && result.getLength() == 101;
+        buffer.backward((int) buffer.getPos());
+        result = parser.runParser(buffer, ParseBudget.builder().steps(1000).backtracks(1).build());
+        assert result.isSuccess() && !result.isExhausted();
+        buffer.backward((int) buffer.getPos());
+        ParseBudget budget = ParseBudget.builder().steps(1000).build();
+        assert parser.runParser(buffer, budget).isSuccess();
+        assert !budget.isExhausted();
+    }
+
+    @Test
+    public void testFoldMany() {
+        Parser digit = TextParsers.satisfy(Character::isDigit).map(s -> (char) s.get(0) - '0');
+        Result result = digit.foldMany(() -> 0, (sum, s) -> sum + (int) s.get(0))
+                .runParser(Buffer.builder().data("12345x".getBytes()).build());
+        assert result.<Integer>get() == 15;
+        assert result.getLength() == 5;
+        IBuffer buffer = Buffer.builder().data("1,2,3,".getBytes()).build();
+        List<Object> digits = new ArrayList<>();
+        assert digit.forEach(buffer, TextParsers.one(','), s -> digits.add(s.get(0))) == 3;
+        assert digits.equals(List.of(1, 2, 3));
+        assert buffer.getPos() == 5;
+    }
 }
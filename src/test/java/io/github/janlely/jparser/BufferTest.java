@@ -1,8 +1,25 @@
 package io.github.janlely.jparser;
 
+import io.github.janlely.jparser.impl.csv.CsvParser;
+import io.github.janlely.jparser.parsers.NumberParsers;
+import io.github.janlely.jparser.parsers.TextParsers;
 import io.github.janlely.jparser.util.Buffer;
+import io.github.janlely.jparser.util.MappedFileBuffer;
+import io.github.janlely.jparser.util.Mapper;
+import io.github.janlely.jparser.util.StreamBuffer;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
 public class BufferTest {
 
     @Test
@@ -28,4 +45,170 @@ public class BufferTest {
         IBuffer[] tmp = buffer.splitAt(0);
         System.out.println("dd");
     }
+
+    @Test
+    public void testViews() {
+        Buffer buffer = Buffer.builder().data("12345678".getBytes()).build();
+        buffer.forward(2);
+        assert buffer.peek(0) == '3';
+        assert buffer.peek(5) == '8';
+        assert buffer.peek(6) == -1;
+        ByteBuffer slice = buffer.slice(1, 3);
+        assert slice.isReadOnly();
+        assert slice.remaining() == 3;
+        assert slice.get(0) == '4';
+        assert buffer.slice(4, 10).remaining() == 2;
+        assert buffer.regionEquals("345".getBytes());
+        assert !buffer.regionEquals("346".getBytes());
+        assert !buffer.regionEquals("3456789".getBytes());
+
+        IBuffer sub = buffer.splitAt(3)[0];
+        assert sub.peek(2) == '5';
+        assert sub.peek(3) == -1;
+        assert sub.slice(0, 10).remaining() == 3;
+        assert sub.regionEquals("345".getBytes());
+        assert !sub.regionEquals("3456".getBytes());
+
+        Result result = NumberParsers.anyLongBE().runParser(Buffer.builder()
+                .data(new byte[] {0, 0, 0, 0, 0, 0, 1, 2})
+                .build());
+        assert result.<Long>get(0) == 258L;
+    }
+
+    @Test
+    public void testMappedFileBuffer() throws IOException {
+        Path file = Files.createTempFile("jparser", ".txt");
+        try {
+            Files.write(file, "hello,world,abc".getBytes());
+            MappedFileBuffer buffer = new MappedFileBuffer(file, 4);
+            assert buffer.size() == 15;
+            assert new String(buffer.headN(6)).equals("hello,");
+            buffer.forward(3);
+            assert buffer.getPos() == 3;
+            assert new String(buffer.headN(6)).equals("lo,wor");
+            buffer.backward(3);
+            IBuffer[] tmp = buffer.splitAt(5);
+            assert tmp[0].remaining() == 5;
+            assert new String(tmp[0].remainContent()).equals("hello");
+            assert tmp[1].getPos() == 5;
+            assert tmp[1].head().get() == ',';
+            assert tmp[1].peek(1) == 'w';
+            assert buffer.regionEquals("hello,wor".getBytes());
+            assert buffer.slice(2, 5).get(4) == 'w';
+
+            Result result = TextParsers.satisfy(Character::isLetter).some().map(Mapper.toStr())
+                    .sepBy(TextParsers.one(','))
+                    .runParser(new MappedFileBuffer(file, 4));
+            assert result.isSuccess();
+            assert result.<String>get(2).equals("abc");
+            assert result.getLength() == 15;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testStreamBuffer() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("field").append(i).append(",\"a,b\",c\n");
+        }
+        sb.append("end,of,file");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bos)) {
+            gzip.write(sb.toString().getBytes());
+        }
+        StreamBuffer buffer = new StreamBuffer(new GZIPInputStream(new ByteArrayInputStream(bos.toByteArray())), 64);
+        Result result = CsvParser.lineParser().commit()
+                .sepBy(TextParsers.one('\n'))
+                .runParser(buffer);
+        assert result.isSuccess();
+        assert result.getResult().size() == 3003;
+        assert result.<String>get(3000).equals("end");
+        assert buffer.remaining() == 0;
+
+        StreamBuffer small = new StreamBuffer(new ByteArrayInputStream(sb.toString().getBytes()), 16);
+        small.forward(100);
+        small.backward(16);
+        try {
+            small.backward(100);
+            assert false;
+        } catch (RuntimeException e) {
+            assert e.getMessage().contains("backtrack window");
+        }
+
+        String literal = "x".repeat(70);
+        StreamBuffer ahead = new StreamBuffer(new ByteArrayInputStream((literal + "!").getBytes()), 4);
+        assert TextParsers.string(literal).runParser(ahead).isSuccess();
+        assert ahead.peek(0) == '!';
+
+        StreamBuffer rest = new StreamBuffer(new ByteArrayInputStream(sb.toString().getBytes()), 16);
+        rest.forward(10);
+        assert new String(rest.remainContent()).equals(sb.substring(10));
+        IBuffer[] parts = rest.splitAt(5);
+        assert new String(parts[0].remainContent()).equals(sb.substring(10, 15));
+        assert new String(parts[1].remainContent()).equals(sb.substring(15));
+        try {
+            new StreamBuffer(new ByteArrayInputStream(new byte[0]), 1 << 30);
+            assert false;
+        } catch (IllegalArgumentException e) {
+            assert e.getMessage().contains("window");
+        }
+    }
+
+    @Test
+    public void testDefaultContext() {
+        IBuffer[] buffers = new IBuffer[20];
+        for (int i = 0; i < buffers.length; i++) {
+            Buffer data = Buffer.builder().data("[trux]".getBytes()).build();
+            buffers[i] = new IBuffer() {
+                @Override
+                public void backward(int n) {
+                    data.backward(n);
+                }
+
+                @Override
+                public int remaining() {
+                    return data.remaining();
+                }
+
+                @Override
+                public Optional<Byte> head() {
+                    return data.head();
+                }
+
+                @Override
+                public byte[] headN(int n) {
+                    return data.headN(n);
+                }
+
+                @Override
+                public void forward(int n) {
+                    data.forward(n);
+                }
+
+                @Override
+                public long getPos() {
+                    return data.getPos();
+                }
+
+                @Override
+                public IBuffer[] splitAt(int idx) {
+                    return data.splitAt(idx);
+                }
+
+                @Override
+                public byte[] remainContent() {
+                    return data.remainContent();
+                }
+            };
+        }
+        Parser parser = TextParsers.one('[').chain(TextParsers.string("true")).memo();
+        for (IBuffer buffer : buffers) {
+            assert parser.runParser(buffer).isError();
+            assert buffer.getContext() == buffer.getContext();
+            assert buffer.getContext().getExpected().equals(List.of("\"true\""));
+        }
+        assert buffers[0].getContext().getFurthestPos() == -1;
+    }
 }
@@ -2,8 +2,18 @@ package io.github.janlely.jparser;
 
 import io.github.janlely.jparser.impl.csv.CsvParser;
 import io.github.janlely.jparser.util.Buffer;
+import io.github.janlely.jparser.util.StreamBuffer;
+import io.github.janlely.jparser.util.MappedFileBuffer;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 public class CSVParserTests {
 
     @Test
@@ -49,4 +59,79 @@ public class CSVParserTests {
         assert result2.<String>get(2).equals("field3");
         assert result2.<String>get(3).equals("field4\"");
     }
+
+    @Test
+    public void testForEachLine() {
+        int lines = 100000;
+        InputStream in = new InputStream() {
+            private final byte[] line = "field,\"a,b\",c\n".getBytes();
+            private long pos;
+
+            @Override
+            public int read() {
+                if (this.pos == (long) lines * this.line.length) {
+                    return -1;
+                }
+                return this.line[(int) (this.pos++ % this.line.length)];
+            }
+        };
+        int[] fields = new int[1];
+        long count = CsvParser.forEachLine(new StreamBuffer(in, 64), line -> {
+            assert line.size() == 1 || line.get(1).equals("a,b");
+            fields[0] += line.size();
+        });
+        // the trailing newline is followed by an empty line
+        assert count == lines + 1;
+        assert fields[0] == lines * 3 + 1;
+
+        Iterator<List> iterator = CsvParser.lines(Buffer.builder().data("a,b\nc,\"d\"".getBytes()).build());
+        assert iterator.next().equals(List.of("a", "b"));
+        assert iterator.next().equals(List.of("c", "d"));
+        assert !iterator.hasNext();
+    }
+
+    @Test
+    public void testParseParallel() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            csv.append(i).append(",\"multi\nline ").append(i).append("\",\"say \"\"hi\"\"\n\"\n");
+            csv.append("plain,\"\n\n\",x\n");
+        }
+        byte[] data = csv.toString().getBytes();
+        List<List> expected = new ArrayList<>();
+        CsvParser.lines(Buffer.builder().data(data).build()).forEachRemaining(expected::add);
+        assert expected.size() == 4001;
+        assert expected.get(0).equals(List.of("0", "multi\nline 0", "say \"hi\"\n"));
+        assert expected.get(1).equals(List.of("plain", "\n\n", "x"));
+        for (int chunkSize : new int[] {1, 7, 64, 1000, 1 << 20}) {
+            assert CsvParser.parseParallel(Buffer.builder().data(data).build(), 4, chunkSize).equals(expected);
+        }
+
+        Path file = Files.createTempFile("jparser", ".csv");
+        try {
+            Files.write(file, data);
+            assert CsvParser.parseParallel(new MappedFileBuffer(file, 4096), 2, 333).equals(expected);
+        } finally {
+            Files.delete(file);
+        }
+
+        assert CsvParser.parseParallel(new StreamBuffer(new ByteArrayInputStream(data), 16), 2, 333).equals(expected);
+
+        byte[] inches = "5\" screen,c\nx,\"p\nq\",z\n".repeat(50).getBytes();
+        List<List> rows = new ArrayList<>();
+        CsvParser.lines(Buffer.builder().data(inches).build()).forEachRemaining(rows::add);
+        assert rows.size() == 101;
+        assert rows.get(0).equals(List.of("5\" screen", "c"));
+        assert rows.get(1).equals(List.of("x", "p\nq", "z"));
+        for (int chunkSize : new int[] {1, 5, 16, 100}) {
+            assert CsvParser.parseParallel(Buffer.builder().data(inches).build(), 2, chunkSize).equals(rows);
+        }
+
+        byte[] broken = "a,b\nc,\"d\nbad\u0001\ne,f\n".getBytes();
+        List<List> lines = CsvParser.parseParallel(Buffer.builder().data(broken).build(), 2, 3);
+        List<List> sequential = new ArrayList<>();
+        CsvParser.lines(Buffer.builder().data(broken).build()).forEachRemaining(sequential::add);
+        assert lines.equals(sequential);
+        assert lines.get(0).equals(List.of("a", "b"));
+    }
 }
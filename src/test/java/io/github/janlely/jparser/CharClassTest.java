@@ -0,0 +1,54 @@
+package io.github.janlely.jparser;
+
+import io.github.janlely.jparser.parsers.TextParsers;
+import io.github.janlely.jparser.util.Buffer;
+import io.github.janlely.jparser.util.CharClass;
+import org.junit.Test;
+
+public class CharClassTest {
+
+    @Test
+    public void testRangeAndSet() {
+        CharClass cc = CharClass.union(CharClass.range('a', 'z'), CharClass.of("_é"), CharClass.range(0x4e00, 0x9fff));
+        assert cc.test('a');
+        assert cc.test('z');
+        assert cc.test('_');
+        assert cc.test('é');
+        assert cc.test('你');
+        assert !cc.test('A');
+        assert !cc.test('ê');
+        assert !cc.test(0x1F600);
+
+        CharClass negated = cc.negate();
+        assert !negated.test('a');
+        assert negated.test('A');
+        assert negated.test('ê');
+        assert negated.test(0x1F600);
+        assert !negated.test('你');
+    }
+
+    @Test
+    public void testPredicate() {
+        CharClass word = CharClass.of(Character::isLetterOrDigit).union(CharClass.of('_'));
+        assert word.test('_');
+        assert word.test('你');
+        assert !word.test('-');
+        CharClass nonWord = word.negate();
+        assert nonWord.test('-');
+        assert !nonWord.test('你');
+        assert !CharClass.NONE.test('a');
+        assert CharClass.ANY.test(0x1F600);
+    }
+
+    @Test
+    public void testParsers() {
+        CharClass ident = CharClass.union(CharClass.range('a', 'z'), CharClass.range('0', '9'));
+        Result result = TextParsers.takeWhile(ident)
+                .chain(() -> TextParsers.skipWhile(CharClass.of(" \t")))
+                .chain(() -> TextParsers.satisfy(CharClass.of('=')))
+                .runParser(Buffer.builder().data("abc123 \t=".getBytes()).build());
+        assert result.isSuccess();
+        assert result.<String>get(0).equals("abc123");
+        assert result.<Character>get(1) == '=';
+    }
+}
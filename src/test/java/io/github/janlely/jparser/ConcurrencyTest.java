@@ -0,0 +1,92 @@
+package io.github.janlely.jparser;
+
+import io.github.janlely.jparser.impl.csv.CsvParser;
+import io.github.janlely.jparser.impl.json.JsonParser;
+import io.github.janlely.jparser.impl.regex.RegexParser;
+import io.github.janlely.jparser.impl.xml.XmlNode;
+import io.github.janlely.jparser.impl.xml.XmlParser;
+import io.github.janlely.jparser.parsers.TextParsers;
+import io.github.janlely.jparser.util.Buffer;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 300;
+
+    @Test
+    public void testIgnore() {
+        Parser comma = TextParsers.one(',');
+        Parser ignored = comma.ignore();
+        assert !comma.isIgnore();
+        assert ignored.isIgnore();
+        assert comma.runParser(Buffer.builder().data(",".getBytes()).build()).getResult().size() == 1;
+        assert ignored.runParser(Buffer.builder().data(",".getBytes()).build()).getResult().isEmpty();
+    }
+
+    @Test
+    public void testSharedParsers() throws Exception {
+        Parser json = JsonParser.parser();
+        Parser csv = CsvParser.lineParser();
+        Parser xml = XmlParser.parser();
+        RegexParser groups = new RegexParser();
+        groups.compile("(a+)(b+)c");
+        RegexParser quote = new RegexParser();
+        quote.compile("^(x+)y\\1$");
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        Future<?>[] futures = new Future[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int id = t;
+            futures[t] = executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ROUNDS; i++) {
+                    int n = 1 + (id + i) % 7;
+                    String a = "a".repeat(n);
+                    String b = "b".repeat(8 - n);
+                    List<String> found = groups.search("zz" + a + b + "c");
+                    if (!found.equals(List.of(a + b + "c", a, b))) {
+                        failures.add("regex groups " + found);
+                    }
+                    String x = "x".repeat(n);
+                    Optional<String> quoted = quote.match(x + "y" + x);
+                    if (!quoted.equals(Optional.of(x + "y" + x)) || quote.match(x + "y" + x.substring(1)).isPresent()) {
+                        failures.add("regex quote " + quoted);
+                    }
+                    String line = id + ",\"" + i + ",q\",end";
+                    Result fields = csv.runParser(Buffer.builder().data(line.getBytes()).build());
+                    if (!fields.getResult().equals(List.of(String.valueOf(id), i + ",q", "end"))) {
+                        failures.add("csv " + fields.getResult());
+                    }
+                    String doc = "{\"t\":" + id + ",\"a\":[" + i + ",true,null]}";
+                    Result value = json.runParser(Buffer.builder().data(doc.getBytes()).build());
+                    if (value.isError() || value.getLength() != doc.length()) {
+                        failures.add("json " + doc);
+                    }
+                    String node = "<n" + n + "><v>" + i + "</v></n" + n + ">";
+                    Result tree = xml.runParser(Buffer.builder().data(node.getBytes()).build());
+                    if (tree.isError() || !tree.<XmlNode>get(0).getName().equals("n" + n)) {
+                        failures.add("xml " + node);
+                    }
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assert failures.isEmpty() : failures.peek();
+    }
+}
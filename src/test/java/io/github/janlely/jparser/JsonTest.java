@@ -1,6 +1,7 @@
 package io.github.janlely.jparser;
 
 import io.github.janlely.jparser.impl.json.JsonParser;
+import io.github.janlely.jparser.impl.json.JsonValue;
 import io.github.janlely.jparser.util.Buffer;
 import org.junit.Test;
 
@@ -155,4 +156,24 @@ public class JsonTest {
 
     }
 
+
+    @Test
+    public void testDeferred() {
+        String source = "{\"a\":[1,2.5,{\"b\":null}],\"c\":true}";
+        Result result = JsonParser.parser().runDeferred(Buffer.builder().data(source.getBytes()).build());
+        assert result.isSuccess();
+        assert result.get(0) instanceof JsonValue;
+    }
+
+    @Test
+    public void testLeadingZeros() {
+        for (String source : new String[] {"[01]", "-01", "[1,00]"}) {
+            Result result = JsonParser.parser().runParser(Buffer.builder().data(source.getBytes()).build());
+            assert result.isError() || result.getLength() < source.length() : source;
+        }
+        for (String source : new String[] {"[0]", "-0", "[0.5,-0e1]"}) {
+            Result result = JsonParser.parser().runParser(Buffer.builder().data(source.getBytes()).build());
+            assert result.isSuccess() && result.getLength() == source.length() : source;
+        }
+    }
 }
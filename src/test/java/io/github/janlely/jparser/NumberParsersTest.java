@@ -0,0 +1,83 @@
+package io.github.janlely.jparser;
+
+import io.github.janlely.jparser.parsers.NumberMode;
+import io.github.janlely.jparser.parsers.NumberParsers;
+import io.github.janlely.jparser.util.Buffer;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+public class NumberParsersTest {
+
+    private static IBuffer buffer(String data) {
+        return Buffer.builder().data(data.getBytes()).build();
+    }
+
+    @Test
+    public void testAnyInt() {
+        int[] value = new int[1];
+        IBuffer buffer = buffer("-2147483648,");
+        assert NumberParsers.anyInt().parseInt(buffer, v -> value[0] = v);
+        assert value[0] == Integer.MIN_VALUE;
+        assert buffer.getPos() == 11;
+        assert !NumberParsers.anyInt().parseInt(buffer("2147483648"), v -> value[0] = v);
+        assert !NumberParsers.anyInt().parseInt(buffer("-x"), v -> value[0] = v);
+        assert NumberParsers.anyInt().runParser(buffer("2147483647")).<Integer>get(0) == Integer.MAX_VALUE;
+
+        long[] longValue = new long[1];
+        assert NumberParsers.anyLong().parseLong(buffer("9223372036854775807"), v -> longValue[0] = v);
+        assert longValue[0] == Long.MAX_VALUE;
+        assert NumberParsers.anyLong().runParser(buffer("9223372036854775808")).isError();
+
+        assert NumberParsers.anyIntStr().runParser(buffer("0123x")).<Integer>get(0) == 123;
+        assert NumberParsers.anyIntStr().runParser(buffer("-1")).isError();
+        assert NumberParsers.anyIntStr().runParser(buffer("99999999999")).isError();
+    }
+
+    @Test
+    public void testAnyDouble() {
+        double[] value = new double[1];
+        IBuffer buffer = buffer("-12.5e3x");
+        assert NumberParsers.anyDouble().parseDouble(buffer, v -> value[0] = v);
+        assert value[0] == -12500;
+        assert buffer.getPos() == 7;
+        Result result = NumberParsers.anyDouble().runParser(buffer("3.e"));
+        assert result.<Double>get(0) == 3;
+        assert result.getLength() == 1;
+        assert NumberParsers.anyDouble().runParser(buffer(".5")).isError();
+        assert NumberParsers.anyDouble().runParser(buffer("01")).getLength() == 1;
+        assert NumberParsers.anyDouble().runParser(buffer("-00.5")).getLength() == 2;
+        assert NumberParsers.anyNumber(NumberMode.LONG).runParser(buffer("012")).getLength() == 1;
+
+        String[] hard = {"1e23", "9007199254740993", "2.2250738585072011e-308", "4.9e-324", "2e-324",
+                "1.7976931348623157e308", "1.8e308", "0.1", "123456789012345678901234567890e-10",
+                "7.29e-2", "0e999", "-0.0", "1e-400", "3.0000000000000004", "8.41e21", "1448997445238699"};
+        for (String s : hard) {
+            assert NumberParsers.anyDouble().parseDouble(buffer(s), v -> value[0] = v);
+            assert Double.doubleToLongBits(value[0]) == Double.doubleToLongBits(Double.parseDouble(s)) : s;
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            String s = i % 2 == 0
+                    ? String.valueOf(Double.longBitsToDouble(random.nextLong() & Long.MAX_VALUE))
+                    : random.nextInt(1000000000) + "." + random.nextInt(1000000) + "e" + (random.nextInt(660) - 330);
+            if (s.contains("N") || s.contains("I")) {
+                continue;
+            }
+            assert NumberParsers.anyDouble().parseDouble(buffer(s), v -> value[0] = v);
+            assert Double.doubleToLongBits(value[0]) == Double.doubleToLongBits(Double.parseDouble(s)) : s;
+        }
+    }
+
+    @Test
+    public void testNumberMode() {
+        assert NumberParsers.anyNumber(NumberMode.LONG).runParser(buffer("9007199254740993")).<Long>get(0)
+                == 9007199254740993L;
+        assert NumberParsers.anyNumber(NumberMode.LONG).runParser(buffer("1.5")).<Double>get(0) == 1.5;
+        assert NumberParsers.anyNumber(NumberMode.LONG).runParser(buffer("99999999999999999999")).<Double>get(0)
+                == 1e20;
+        assert NumberParsers.anyNumber(NumberMode.BIG_DECIMAL).runParser(buffer("0.10000000000000000001"))
+                .<BigDecimal>get(0).equals(new BigDecimal("0.10000000000000000001"));
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.janlely.jparser;
+
+import io.github.janlely.jparser.parsers.NumberParsers;
+import io.github.janlely.jparser.util.Buffer;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ParallelParserTest {
+
+    private static List<IBuffer> inputs(int n) {
+        return IntStream.range(0, n)
+                .mapToObj(i -> (IBuffer) Buffer.builder().data((i % 10 == 9 ? "x" : String.valueOf(i)).getBytes()).build())
+                .collect(Collectors.toList());
+    }
+
+    private static void check(List<Result> results, int n) {
+        assert results.size() == n;
+        for (int i = 0; i < n; i++) {
+            Result result = results.get(i);
+            if (i % 10 == 9) {
+                assert result.isError();
+            } else {
+                assert result.<Integer>get() == i;
+            }
+        }
+    }
+
+    @Test
+    public void testParseAll() {
+        check(ParallelParser.parseAll(NumberParsers.anyInt(), inputs(1000)), 1000);
+        try (ParallelParser parallel = ParallelParser.builder()
+                .parser(NumberParsers.anyInt())
+                .parallelism(4)
+                .chunkSize(7)
+                .build()) {
+            check(parallel.parseAll(inputs(1000)), 1000);
+            check(parallel.parseAll(inputs(0)), 0);
+        }
+        try (ParallelParser parallel = ParallelParser.builder()
+                .parser(NumberParsers.anyInt())
+                .virtualThreads(true)
+                .build()) {
+            check(parallel.parseAll(inputs(100)), 100);
+        }
+    }
+
+    @Test
+    public void testParseStream() {
+        try (ParallelParser parallel = ParallelParser.builder()
+                .parser(NumberParsers.anyInt())
+                .parallelism(2)
+                .chunkSize(5)
+                .build()) {
+            check(parallel.parseStream(inputs(1003).stream()).collect(Collectors.toList()), 1003);
+            assert parallel.parseStream(inputs(1000).stream()).limit(3).count() == 3;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import io.github.janlely.jparser.impl.regex.RegexParser;
 import io.github.janlely.jparser.util.Buffer;
 import org.junit.Test;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -132,4 +133,37 @@ public class RegexParserTests {
         assert result.get(2).equals("abc");
 
     }
+
+    @Test
+    public void testRepeatedToken() {
+        RegexParser regexParser = new RegexParser();
+        regexParser.compile("^a.+b.c$");
+        assert regexParser.match("a12b3c").get().equals("a12b3c");
+        assert regexParser.match("a1b22c").isEmpty();
+    }
+
+    @Test
+    public void testLongInput() {
+        RegexParser regexParser = new RegexParser();
+        regexParser.compile("^.*(ab)+c$");
+        String src = "x".repeat(8000) + "ababc";
+        assert regexParser.match(src).get().equals(src);
+        assert regexParser.match(src + "d").isEmpty();
+    }
+
+    @Test
+    public void testBudget() {
+        RegexParser regexParser = new RegexParser();
+        regexParser.compile("[a-z]+x+abc");
+        String src = "x".repeat(5000);
+        long start = System.currentTimeMillis();
+        try {
+            regexParser.match(src, ParseBudget.builder().timeout(Duration.ofMillis(50)).build());
+            assert false;
+        } catch (RuntimeException e) {
+            assert e.getMessage().equals("parse budget exhausted");
+        }
+        assert System.currentTimeMillis() - start < 1000;
+        assert regexParser.match("abxxabc", ParseBudget.builder().steps(10000).build()).get().equals("abxxabc");
+    }
 }
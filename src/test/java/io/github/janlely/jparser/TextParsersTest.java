@@ -1,11 +1,15 @@
 package io.github.janlely.jparser;
 
+import io.github.janlely.jparser.parsers.ByteParsers;
 import io.github.janlely.jparser.parsers.TextParsers;
 import io.github.janlely.jparser.util.Buffer;
 import io.github.janlely.jparser.util.Mapper;
 import org.junit.Test;
 
 import java.awt.image.MultiPixelPackedSampleModel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 
 public class TextParsersTest {
 
@@ -51,6 +55,59 @@ public class TextParsersTest {
         assert result3.isSuccess();
     }
 
+    @Test
+    public void testSatisfyCharset() {
+        byte[] data = "a\u00e9\u4f60\ud83d\ude00".getBytes(StandardCharsets.UTF_8);
+        Parser parser = TextParsers.satisfy(c -> true).many().map(Mapper.toStr());
+        Result result = parser.runParser(Buffer.builder().data(data).build());
+        assert result.<String>get(0).equals("a\u00e9\u4f60");
+        assert result.getLength() == 6;
+
+        Result invalid = TextParsers.any().runParser(Buffer.builder()
+                .data(new byte[] {(byte) 0xc0, (byte) 0x80})
+                .build());
+        assert invalid.isError();
+
+        Result latin1 = TextParsers.satisfy(c -> c == '\u00e9', StandardCharsets.ISO_8859_1)
+                .runParser(Buffer.builder().data(new byte[] {(byte) 0xe9}).build());
+        assert latin1.isSuccess();
+        assert latin1.getLength() == 1;
+
+        Result utf16 = TextParsers.satisfy(c -> c == '\u4f60', StandardCharsets.UTF_16BE)
+                .runParser(Buffer.builder().data("\u4f60".getBytes(StandardCharsets.UTF_16BE)).build());
+        assert utf16.isSuccess();
+        assert utf16.getLength() == 2;
+    }
+
+    @Test
+    public void testCodePoint() {
+        String src = "\ud83d\ude00\u4f60\ud840\udc00a";
+        Result result1 = TextParsers.satisfyCp(cp -> cp == 0x1F600)
+                .runParser(Buffer.builder().data(src.getBytes(StandardCharsets.UTF_8)).build());
+        assert result1.isSuccess();
+        assert result1.<Integer>get(0) == 0x1F600;
+        assert result1.getLength() == 4;
+
+        Result result2 = TextParsers.takeWhileCp(cp -> cp > 0x7f)
+                .runParser(Buffer.builder().data(src.getBytes(StandardCharsets.UTF_8)).build());
+        assert result2.<String>get(0).equals("\ud83d\ude00\u4f60\ud840\udc00");
+
+        Result result3 = TextParsers.takeWhileCp(Character::isLetter, StandardCharsets.UTF_16LE)
+                .runParser(Buffer.builder().data(src.getBytes(StandardCharsets.UTF_16LE)).build());
+        assert result3.isSuccess();
+        assert result3.<String>get(0).isEmpty();
+
+        Result result4 = TextParsers.takeWhileCp(cp -> cp != 'a', StandardCharsets.UTF_16)
+                .runParser(Buffer.builder().data(src.getBytes(StandardCharsets.UTF_16BE)).build());
+        assert result4.<String>get(0).equals("\ud83d\ude00\u4f60\ud840\udc00");
+
+        Parser emoji = TextParsers.oneOfCp("\ud83d\ude00\ud840\udc00").many().map(Mapper.cpToStr());
+        Result result5 = emoji.runParser(Buffer.builder()
+                .data("\ud840\udc00\ud83d\ude00\u4f60".getBytes(StandardCharsets.UTF_8))
+                .build());
+        assert result5.<String>get(0).equals("\ud840\udc00\ud83d\ude00");
+    }
+
     @Test
     public void testString() {
         Result result1 = TextParsers.string("hello").runParser(Buffer.builder()
@@ -67,6 +124,45 @@ public class TextParsersTest {
         assert result2.isSuccess();
         assert result2.<String>get(0).equals("hello");
         assert result3.<String>get(0).equals("hello");
+
+        Result result4 = TextParsers.string("\u00e9cole", true).runParser(Buffer.builder()
+                .data("\u00c9CoLe".getBytes(StandardCharsets.UTF_8))
+                .build());
+        assert result4.<String>get(0).equals("\u00e9cole");
+        assert result4.getLength() == 6;
+        Result result5 = TextParsers.string("hello", true).runParser(Buffer.builder()
+                .data("hell".getBytes())
+                .build());
+        assert result5.isError();
+        Result result6 = TextParsers.string("\u0131x", true).runParser(Buffer.builder()
+                .data("IX".getBytes())
+                .build());
+        assert result6.<String>get(0).equals("\u0131x");
+    }
+
+    @Test
+    public void testOneOfStrings() {
+        Parser method = TextParsers.oneOfStrings(List.of("GET", "POST", "PUT", "PATCH", "DELETE"));
+        Result result1 = method.runParser(Buffer.builder()
+                .data("PATCH /".getBytes())
+                .build());
+        Result result2 = method.runParser(Buffer.builder()
+                .data("PAT".getBytes())
+                .build());
+        assert result1.<String>get(0).equals("PATCH");
+        assert result1.getLength() == 5;
+        assert result2.isError();
+
+        Parser level = TextParsers.oneOfStrings(Map.of("INFO", 1, "WARN", 2, "WARNING", 2, "ERROR", 3));
+        Result result3 = level.runParser(Buffer.builder()
+                .data("WARNING: x".getBytes())
+                .build());
+        Result result4 = level.runParser(Buffer.builder()
+                .data("WARNIN".getBytes())
+                .build());
+        assert result3.<Integer>get(0) == 2;
+        assert result3.getLength() == 7;
+        assert result4.getLength() == 4;
     }
 
     @Test
@@ -126,6 +222,37 @@ public class TextParsersTest {
         assert result4.isError();
     }
 
+    @Test
+    public void testTakeWhile() {
+        Result result1 = TextParsers.takeWhile(Character::isLetter)
+                .chain(() -> TextParsers.skipWhile(Character::isSpaceChar))
+                .chain(() -> TextParsers.takeWhile(Character::isDigit))
+                .runParser(Buffer.builder()
+                        .data("h\u00e9llo   123;".getBytes(StandardCharsets.UTF_8))
+                        .build());
+        assert result1.isSuccess();
+        assert result1.getResult().size() == 2;
+        assert result1.<String>get(0).equals("h\u00e9llo");
+        assert result1.<String>get(1).equals("123");
+        assert result1.getLength() == 12;
+
+        Result result2 = TextParsers.takeWhile(Character::isDigit).runParser(Buffer.builder()
+                .data("abc".getBytes())
+                .build());
+        assert result2.isSuccess();
+        assert result2.<String>get(0).isEmpty();
+        assert result2.getLength() == 0;
+
+        Result result3 = ByteParsers.takeWhile(b -> b != ';')
+                .chain(() -> ByteParsers.skipWhile(b -> b == ';'))
+                .runParser(Buffer.builder()
+                        .data("key;;;".getBytes())
+                        .build());
+        assert result3.getResult().size() == 1;
+        assert new String(result3.<byte[]>get(0)).equals("key");
+        assert result3.getLength() == 6;
+    }
+
     @Test
     public void testSpace() {
         Result result1 = TextParsers.space().runParser(Buffer.builder()
@@ -0,0 +1,56 @@
+package io.github.janlely.jparser;
+
+import io.github.janlely.jparser.parsers.TextParsers;
+import io.github.janlely.jparser.parsers.TypedParsers;
+import io.github.janlely.jparser.util.Buffer;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class TypedParserTest {
+
+    @Test
+    public void testTyped() {
+        TypedParser<String> key = TypedParsers.takeWhile(Character::isLetter).must(s -> !s.isEmpty());
+        TypedParser<Integer> value = TypedParsers.takeWhile(Character::isDigit).must(s -> !s.isEmpty())
+                .map(Integer::parseInt);
+        TypedParser<Map.Entry<String, Integer>> entry = key.skipRight(TypedParsers.one('='))
+                .then(value, Map::entry);
+        TypedParser<Map<String, Integer>> map = entry.skipRight(TypedParsers.one(';').optional())
+                .manyInto(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        TypedResult<Map<String, Integer>> result = map.skipRight(TypedParsers.eof())
+                .runParser(Buffer.builder().data("a=1;bc=23;d=456".getBytes()).build());
+        assert result.isSuccess();
+        assert result.get().equals(Map.of("a", 1, "bc", 23, "d", 456));
+        assert result.getLength() == 15;
+
+        TypedResult<Map<String, Integer>> error = map.skipRight(TypedParsers.eof())
+                .runParser(Buffer.builder().data("a=1;bc=".getBytes()).build());
+        assert error.isError();
+        assert error.getErrorMsg() != null;
+
+        IBuffer buffer = Buffer.builder().data("abcd".getBytes()).build();
+        assert TypedParsers.string("abcdx").runParser(buffer).isError();
+        TypedResult<String> stale = TypedParsers.string("zz").runParser(buffer);
+        assert stale.getErrorMsg().endsWith("expected: \"zz\"") : stale.getErrorMsg();
+        TypedResult<String> unrecorded = TypedParsers.string("ab").map(s -> s).must(s -> false).runParser(buffer);
+        assert !unrecorded.getErrorMsg().contains("expected:") : unrecorded.getErrorMsg();
+    }
+
+    @Test
+    public void testAdapter() {
+        TypedParser<List<Integer>> numbers = TypedParsers.takeWhile(Character::isDigit)
+                .map(Integer::parseInt)
+                .sepBy(TypedParsers.one(',').trim(false));
+        Parser parser = numbers.toParser().chain(TextParsers.string("!"));
+        Result result = parser.runParser(Buffer.builder().data("1, 2 ,3!".getBytes()).build());
+        assert result.isSuccess();
+        assert result.<List<Integer>>get(0).equals(List.of(1, 2, 3));
+        assert result.<String>get(1).equals("!");
+
+        TypedParser<String> hello = TypedParser.of(TextParsers.string("hello"), r -> (String) r.get(0));
+        assert hello.runParser(Buffer.builder().data("hello".getBytes()).build()).get().equals("hello");
+    }
+}
@@ -46,4 +46,25 @@ public class XmlParserTests {
                 .build());
         assert result1.isSuccess();
     }
+
+    @Test
+    public void testCloseTag() {
+        Parser parser = XmlParser.parser();
+        Result result1 = parser.runParser(Buffer.builder()
+                .data("<a><b>x</b><c/></a>".getBytes())
+                .build());
+        assert result1.isSuccess();
+        assert result1.<XmlNode>get(0).getName().equals("a");
+        Result result2 = parser.runParser(Buffer.builder()
+                .data("<a><b>x</c></a>".getBytes())
+                .build());
+        assert result2.isError();
+    }
+
+    @Test
+    public void testRecognize() {
+        Parser parser = XmlParser.parser();
+        assert parser.recognize(Buffer.builder().data("<a><b>x</b><c/></a>".getBytes()).build()) == 19;
+        assert parser.recognize(Buffer.builder().data("<a><b>x</c></a>".getBytes()).build()) == -1;
+    }
 }